@@ -0,0 +1,52 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MemberRepositoryBenchmark {
+
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+    private Pageable firstPage;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        memberRepository = database.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+
+        firstPage = PageRequest.of(0, 20);
+    }
+
+    @Benchmark
+    public List<MemberFormDto> search() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public Page<MemberFormDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, firstPage);
+    }
+
+    @Benchmark
+    public Page<MemberFormDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, firstPage);
+    }
+}
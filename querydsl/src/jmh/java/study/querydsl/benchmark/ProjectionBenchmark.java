@@ -0,0 +1,97 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.QMemberFormDto;
+import study.querydsl.dto.QUserDto;
+import study.querydsl.dto.UserDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * QuerydslBasicTest 에서 다뤘던 프로젝션 방식들을 같은 행 수로 비교한다.
+ * 매번 넣어 둔 회원 전체 ({@link SeededDatabase#members}) 를 읽으므로 데이터 크기별 프로젝션 비용을 볼 수 있다.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ProjectionBenchmark {
+
+    // 한 번에 읽는 행 수, 같은 trial 의 방식들끼리는 같다.
+    private int rows;
+
+    private JPAQueryFactory queryFactory;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        queryFactory = new JPAQueryFactory(database.getBean(EntityManager.class));
+        rows = database.members;
+    }
+
+    @Benchmark
+    public List<MemberDto> bean() {
+        return queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> fields() {
+        return queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDto> constructor() {
+        return queryFactory
+                .select(Projections.constructor(UserDto.class, member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDto> queryProjection() {
+        return queryFactory
+                .select(new QUserDto(member.username, member.age))
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberFormDto> queryProjectionWithJoin() {
+        return queryFactory
+                .select(new QMemberFormDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(rows)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<Tuple> tuple() {
+        return queryFactory
+                .select(member.username, member.age)
+                .from(member)
+                .limit(rows)
+                .fetch();
+    }
+}
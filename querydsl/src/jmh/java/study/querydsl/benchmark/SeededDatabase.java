@@ -0,0 +1,55 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.service.MemberBulkLoader;
+
+/**
+ * 인메모리 H2 로 애플리케이션을 띄우고 members 수만큼 회원을 넣어 둔 상태.
+ * 벤치마크 측정값에 섞이지 않도록 sql 로그와 검색 결과 캐시는 끈다.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+
+    @Param({"1000", "10000", "100000"})
+    public int members;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.profiles.active=bench",
+                        "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=1000",
+                        "--logging.level.org.hibernate.sql=warn",
+                        "--member.search-cache.enabled=false");
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed() {
+        getBean(MemberBulkLoader.class).load(2, members, 1000);
+    }
+}
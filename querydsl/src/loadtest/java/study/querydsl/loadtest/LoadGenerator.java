@@ -0,0 +1,134 @@
+package study.querydsl.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 정해진 rps 로 요청을 보내는 open loop 부하 발생기.
+ * <p>
+ * i 번째 요청은 응답과 상관없이 start + i / rps 에 보내고, 지연 시간도 실제로 보낸 시각이 아니라 보내기로 한 시각부터 잰다.
+ * 서버가 느려져서 발생기가 밀려도 그만큼이 지연 시간에 들어가므로 (coordinated omission 보정) p99 / p999 가 낙관적으로 나오지 않는다.
+ * maxInFlight 가 차서 보내지 못한 요청 (dropped) 도 빼지 않고 requestTimeout 으로 기록한다.
+ * 빼 버리면 서버가 가장 느릴 때의 요청만 빠져서 같은 낙관이 다시 생긴다.
+ * 지연 시간은 마이크로초 단위로 엔드포인트별 HdrHistogram 에 기록한다.
+ */
+final class LoadGenerator {
+
+    static final class Result {
+        final Histogram histogram;
+        final long errors;
+        final long dropped;
+
+        Result(Histogram histogram, long errors, long dropped) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.dropped = dropped;
+        }
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final RequestMix mix;
+    private final LoadTestOptions options;
+    private final Semaphore inFlight;
+    private final long timeoutMicros;
+    private final Map<RequestMix.Endpoint, Recorder> recorders = new EnumMap<>(RequestMix.Endpoint.class);
+    private final Map<RequestMix.Endpoint, AtomicLong> errors = new EnumMap<>(RequestMix.Endpoint.class);
+    private final Map<RequestMix.Endpoint, AtomicLong> dropped = new EnumMap<>(RequestMix.Endpoint.class);
+
+    LoadGenerator(String baseUrl, RequestMix mix, LoadTestOptions options) {
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.options = options;
+        this.inFlight = new Semaphore(options.maxInFlight);
+        this.timeoutMicros = options.requestTimeout.toNanos() / 1000;
+        for (RequestMix.Endpoint endpoint : mix.endpoints()) {
+            recorders.put(endpoint, new Recorder(3));
+            errors.put(endpoint, new AtomicLong());
+            dropped.put(endpoint, new AtomicLong());
+        }
+    }
+
+    /**
+     * warmup 동안 보내고 버린 뒤, duration 동안 보낸 요청의 결과를 돌려준다.
+     */
+    Map<RequestMix.Endpoint, Result> run() throws InterruptedException {
+        fire(options.warmup);
+        awaitInFlight();
+        reset();
+
+        fire(options.duration);
+        awaitInFlight();
+
+        Map<RequestMix.Endpoint, Result> results = new EnumMap<>(RequestMix.Endpoint.class);
+        recorders.forEach((endpoint, recorder) -> results.put(endpoint,
+                new Result(recorder.getIntervalHistogram(), errors.get(endpoint).get(), dropped.get(endpoint).get())));
+        return results;
+    }
+
+    private void fire(Duration duration) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rps;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(mix.next(), intended);
+        }
+    }
+
+    private void send(RequestMix.Request request, long intendedNanos) {
+        if (!inFlight.tryAcquire()) {
+            // 보냈더라도 제한 시간까지 기다렸을 요청이므로 그 값으로 기록한다.
+            recorders.get(request.endpoint).recordValue(timeoutMicros);
+            dropped.get(request.endpoint).incrementAndGet();
+            return;
+        }
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + request.pathAndQuery))
+                .timeout(options.requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        client.sendAsync(httpRequest, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+                    recorders.get(request.endpoint).recordValue(micros);
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.get(request.endpoint).incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        inFlight.acquire(options.maxInFlight);
+        inFlight.release(options.maxInFlight);
+    }
+
+    private void reset() {
+        recorders.values().forEach(Recorder::reset);
+        errors.values().forEach(count -> count.set(0));
+        dropped.values().forEach(count -> count.set(0));
+    }
+}
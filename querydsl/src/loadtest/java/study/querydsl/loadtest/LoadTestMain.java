@@ -0,0 +1,69 @@
+package study.querydsl.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 인메모리 H2 로 애플리케이션을 띄우고 (local 프로필의 InitMember 가 members 명을 넣는다)
+ * /v1, /v2, /v3/members 에 RequestMix 의 요청을 rps 만큼 보낸 뒤 build/reports/loadtest 에 리포트를 남긴다.
+ * 옵션은 {@link LoadTestOptions}. baseline 과 비교해서 p99, 오류율, dropped 비율이 나빠졌으면 종료 코드 1 로 끝난다.
+ * <p>
+ * 벤치마크 (src/jmh) 와 마찬가지로 측정값에 섞이지 않도록 sql 로그와 검색 결과 캐시는 끈다.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        int exitCode;
+        try (ConfigurableApplicationContext context = start(options)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            RequestMix mix = new RequestMix(options.mix, options.members, options.teams, options.seed);
+
+            System.out.printf("load test %s: %d rps for %s (warmup %s) against %d members%n",
+                    options.label, options.rps, options.duration, options.warmup, options.members);
+            Map<RequestMix.Endpoint, LoadGenerator.Result> results =
+                    new LoadGenerator("http://localhost:" + port, mix, options).run();
+
+            LoadTestReport report = new LoadTestReport(options, results);
+            Path file = report.write();
+            System.out.println("report: " + file.toAbsolutePath());
+
+            boolean passed = options.baseline == null || report.compareWith(options.baseline, System.out);
+            exitCode = passed ? 0 : 1;
+        }
+        System.exit(exitCode);
+    }
+
+    private static ConfigurableApplicationContext start(LoadTestOptions options) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.profiles.active", "local");
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.jpa.properties.hibernate.show_sql", "false");
+        properties.put("spring.jpa.properties.hibernate.format_sql", "false");
+        properties.put("spring.jpa.properties.hibernate.use_sql_comments", "false");
+        properties.put("logging.level.org.hibernate.sql", "warn");
+        properties.put("member.search-cache.enabled", "false");
+        properties.put("member.seed.count", String.valueOf(options.members));
+        properties.put("member.seed.team-count", String.valueOf(options.teams));
+        // 같은 키를 두 번 넘기면 Spring 이 값을 쉼표로 이어 붙이므로 사용자가 넘긴 값으로 덮어쓴다.
+        for (String arg : options.applicationArgs) {
+            int eq = arg.indexOf('=');
+            properties.put(arg.substring(2, eq < 0 ? arg.length() : eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+
+        List<String> args = new ArrayList<>();
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .logStartupInfo(false)
+                .run(args.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 부하 테스트 옵션. 인자는 key=value 형식이고, -- 로 시작하는 인자는 그대로 애플리케이션에 넘긴다.
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="members=100000 rps=500 duration=60s mix=v2=1,v3=3 label=v1.4.0"
+ * ./gradlew loadTest -PloadTestArgs="label=v1.5.0 baseline=build/reports/loadtest/v1.4.0.json --member.age-index.enabled=true"
+ * </pre>
+ */
+final class LoadTestOptions {
+
+    // 시작할 때 넣는 회원 / 팀 수 (member.seed.*)
+    int members = 10_000;
+    int teams = 4;
+    // 초당 보내는 요청 수, 응답을 기다리지 않고 일정한 간격으로 보낸다. (open loop)
+    int rps = 200;
+    Duration warmup = Duration.ofSeconds(10);
+    Duration duration = Duration.ofSeconds(30);
+    // 동시에 응답을 기다리는 요청의 상한, 넘치면 보내지 않고 dropped 로 세고 지연 시간은 requestTimeout 으로 기록한다.
+    int maxInFlight = 256;
+    Duration requestTimeout = Duration.ofSeconds(5);
+    // 같은 seed 면 같은 순서의 요청을 보낸다.
+    long seed = 42;
+    // 엔드포인트별 가중치, RequestMix.Endpoint 의 이름
+    String mix = "v1=1,v2=2,v3=4";
+    Path reportDir = Paths.get("build", "reports", "loadtest");
+    String label = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    // 이전 리포트, 주어지면 p99 를 비교해서 maxRegression 보다 느려지면 실패로 끝낸다.
+    Path baseline;
+    double maxRegression = 0.2;
+    // 오류율 / dropped 비율이 baseline 보다 이만큼 (비율의 차, 0.01 = 1%p) 넘게 늘면 실패로 끝낸다.
+    double maxErrorRateIncrease = 0.0;
+    final List<String> applicationArgs = new ArrayList<>();
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                options.applicationArgs.add(arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("key=value 형식이 아닙니다: " + arg);
+            }
+            options.set(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private void set(String key, String value) {
+        switch (key) {
+            case "members": members = Integer.parseInt(value); break;
+            case "teams": teams = Integer.parseInt(value); break;
+            case "rps": rps = Integer.parseInt(value); break;
+            case "warmup": warmup = duration(value); break;
+            case "duration": duration = duration(value); break;
+            case "max-in-flight": maxInFlight = Integer.parseInt(value); break;
+            case "timeout": requestTimeout = duration(value); break;
+            case "seed": seed = Long.parseLong(value); break;
+            case "mix": mix = value; break;
+            case "report-dir": reportDir = Paths.get(value); break;
+            case "label": label = value; break;
+            case "baseline": baseline = Paths.get(value); break;
+            case "max-regression": maxRegression = Double.parseDouble(value); break;
+            case "max-error-rate-increase": maxErrorRateIncrease = Double.parseDouble(value); break;
+            default: throw new IllegalArgumentException("알 수 없는 옵션입니다: " + key);
+        }
+    }
+
+    // 30s, 500ms, 2m 또는 ISO-8601 (PT30S)
+    private static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's': return Duration.ofSeconds(amount);
+            case 'm': return Duration.ofMinutes(amount);
+            default: throw new IllegalArgumentException("시간 형식이 아닙니다: " + value);
+        }
+    }
+
+    // 리포트에 함께 남겨서 같은 조건으로 잰 결과끼리 비교하게 한다.
+    Map<String, Object> describe() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("members", members);
+        values.put("teams", teams);
+        values.put("rps", rps);
+        values.put("warmup", warmup.toString());
+        values.put("duration", duration.toString());
+        values.put("maxInFlight", maxInFlight);
+        values.put("requestTimeout", requestTimeout.toString());
+        values.put("seed", seed);
+        values.put("mix", mix);
+        values.put("applicationArgs", applicationArgs);
+        return values;
+    }
+}
@@ -0,0 +1,146 @@
+package study.querydsl.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 부하 테스트 결과 파일.
+ * <ul>
+ *     <li>{label}.json: 옵션과 엔드포인트별 요청 수, 오류 / dropped 와 그 비율, p50 / p90 / p99 / p999 / max (ms). 릴리스끼리 비교할 때 쓴다.
+ *     requests 는 dropped 를 포함한 보내기로 한 요청 수이다.</li>
+ *     <li>{label}-{endpoint}.hgrm: HdrHistogram 백분위 분포 (ms), HdrHistogram 플로터로 여러 릴리스를 겹쳐 볼 수 있다.</li>
+ * </ul>
+ */
+final class LoadTestReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final LoadTestOptions options;
+    private final Map<RequestMix.Endpoint, LoadGenerator.Result> results;
+
+    LoadTestReport(LoadTestOptions options, Map<RequestMix.Endpoint, LoadGenerator.Result> results) {
+        this.options = options;
+        this.results = results;
+    }
+
+    Path write() throws IOException {
+        Files.createDirectories(options.reportDir);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", options.label);
+        report.put("finishedAt", Instant.now().toString());
+        report.put("options", options.describe());
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        long totalDropped = 0;
+        for (Map.Entry<RequestMix.Endpoint, LoadGenerator.Result> entry : results.entrySet()) {
+            LoadGenerator.Result result = entry.getValue();
+            endpoints.put(entry.getKey().key(), summary(result.histogram, result.errors, result.dropped));
+            writePercentiles(entry.getKey().key(), result.histogram);
+            total.add(result.histogram);
+            totalErrors += result.errors;
+            totalDropped += result.dropped;
+        }
+        report.put("endpoints", endpoints);
+        report.put("total", summary(total, totalErrors, totalDropped));
+
+        Path file = options.reportDir.resolve(options.label + ".json");
+        MAPPER.writeValue(file.toFile(), report);
+        return file;
+    }
+
+    /**
+     * baseline 리포트와 엔드포인트별 p99, 오류율, dropped 비율을 비교한다.
+     * p99 가 maxRegression 보다 많이 느려졌거나 오류율 / dropped 비율이 maxErrorRateIncrease 보다 많이 늘었으면 false.
+     * 빨라진 p99 도 오류나 dropped 가 늘어서 생긴 것일 수 있으므로 세 값을 함께 본다.
+     */
+    boolean compareWith(Path baseline, PrintStream out) throws IOException {
+        JsonNode baseEndpoints = MAPPER.readTree(baseline.toFile()).path("endpoints");
+        List<String> regressions = new ArrayList<>();
+        out.printf("%-14s %12s %12s %8s %10s %10s %10s %10s%n",
+                "endpoint", "base p99 ms", "p99 ms", "change", "base err", "err", "base drop", "drop");
+        for (Iterator<String> names = baseEndpoints.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            RequestMix.Endpoint endpoint = RequestMix.Endpoint.from(name);
+            if (!results.containsKey(endpoint)) {
+                continue;
+            }
+            JsonNode base = baseEndpoints.path(name);
+            LoadGenerator.Result result = results.get(endpoint);
+            double baseP99 = base.path("p99Ms").asDouble();
+            double p99 = millis(result.histogram.getValueAtPercentile(99));
+            double change = baseP99 == 0 ? 0 : p99 / baseP99 - 1;
+            long baseRequests = base.path("requests").asLong();
+            double baseErrorRate = rate(base.path("errors").asLong(), baseRequests);
+            double baseDropRate = rate(base.path("dropped").asLong(), baseRequests);
+            double errorRate = rate(result.errors, result.histogram.getTotalCount());
+            double dropRate = rate(result.dropped, result.histogram.getTotalCount());
+            out.printf("%-14s %12.2f %12.2f %+7.1f%% %9.2f%% %9.2f%% %9.2f%% %9.2f%%%n", name, baseP99, p99, change * 100,
+                    baseErrorRate * 100, errorRate * 100, baseDropRate * 100, dropRate * 100);
+            if (change > options.maxRegression) {
+                regressions.add(name + " p99");
+            }
+            if (errorRate - baseErrorRate > options.maxErrorRateIncrease) {
+                regressions.add(name + " errors");
+            }
+            if (dropRate - baseDropRate > options.maxErrorRateIncrease) {
+                regressions.add(name + " dropped");
+            }
+        }
+        if (!regressions.isEmpty()) {
+            out.printf("regressed (p99 > +%.0f%%, error / drop rate > +%.2f%%p): %s%n",
+                    options.maxRegression * 100, options.maxErrorRateIncrease * 100, regressions);
+        }
+        return regressions.isEmpty();
+    }
+
+    private Map<String, Object> summary(Histogram histogram, long errors, long dropped) {
+        double seconds = options.duration.toMillis() / 1000.0;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("dropped", dropped);
+        summary.put("errorRate", rate(errors, histogram.getTotalCount()));
+        summary.put("dropRate", rate(dropped, histogram.getTotalCount()));
+        // 실제로 보낸 요청만 센다.
+        summary.put("throughputRps", (histogram.getTotalCount() - dropped) / seconds);
+        summary.put("meanMs", histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / MICROS_PER_MILLI);
+        summary.put("p50Ms", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p90Ms", millis(histogram.getValueAtPercentile(90)));
+        summary.put("p99Ms", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999Ms", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("maxMs", millis(histogram.getMaxValue()));
+        return summary;
+    }
+
+    private void writePercentiles(String endpoint, Histogram histogram) throws IOException {
+        Path file = options.reportDir.resolve(options.label + "-" + endpoint + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    // 요청이 없으면 0
+    private static double rate(long count, long requests) {
+        return requests == 0 ? 0 : (double) count / requests;
+    }
+
+    private static double millis(long micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+}
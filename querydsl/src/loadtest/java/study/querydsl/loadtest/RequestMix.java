@@ -0,0 +1,152 @@
+package study.querydsl.loadtest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 엔드포인트 가중치에 따라 MemberSearchCondition / Pageable 조합의 요청 url 을 만든다.
+ * 값은 MemberBulkLoader 가 넣는 데이터 (username memberN, age N % 100, teamA, teamB ...) 에 맞춘다.
+ * 같은 seed 면 같은 순서의 요청이 나온다.
+ */
+final class RequestMix {
+
+    enum Endpoint {
+        V1("/v1/members", "", false),
+        V2("/v2/members", "", true),
+        V3("/v3/members", "", true),
+        V3_ESTIMATED("/v3/members", "count=estimated", true),
+        V3_ROWS("/v3/members", "view=rows", true);
+
+        private final String path;
+        private final String fixedParams;
+        private final boolean paged;
+
+        Endpoint(String path, String fixedParams, boolean paged) {
+            this.path = path;
+            this.fixedParams = fixedParams;
+            this.paged = paged;
+        }
+
+        // v1, v2, v3, v3-estimated, v3-rows
+        String key() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+
+        static Endpoint from(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key().equals(key.trim())) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("알 수 없는 엔드포인트입니다: " + key);
+        }
+    }
+
+    static final class Request {
+        final Endpoint endpoint;
+        final String pathAndQuery;
+
+        Request(Endpoint endpoint, String pathAndQuery) {
+            this.endpoint = endpoint;
+            this.pathAndQuery = pathAndQuery;
+        }
+    }
+
+    private static final int[] PAGE_SIZES = {20, 50, 100};
+    private static final int MAX_PAGE = 5;
+
+    private final Endpoint[] weighted;
+    private final int members;
+    private final int teams;
+    private final Random random;
+
+    RequestMix(String mix, int members, int teams, long seed) {
+        List<Endpoint> weighted = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            Endpoint endpoint = Endpoint.from(eq < 0 ? entry : entry.substring(0, eq));
+            int weight = eq < 0 ? 1 : Integer.parseInt(entry.substring(eq + 1).trim());
+            for (int i = 0; i < weight; i++) {
+                weighted.add(endpoint);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("mix 에 엔드포인트가 없습니다: " + mix);
+        }
+        this.weighted = weighted.toArray(new Endpoint[0]);
+        this.members = members;
+        this.teams = teams;
+        this.random = new Random(seed);
+    }
+
+    List<Endpoint> endpoints() {
+        List<Endpoint> distinct = new ArrayList<>();
+        for (Endpoint endpoint : weighted) {
+            if (!distinct.contains(endpoint)) {
+                distinct.add(endpoint);
+            }
+        }
+        return distinct;
+    }
+
+    // 스케줄러 스레드 하나에서만 부른다.
+    Request next() {
+        Endpoint endpoint = weighted[random.nextInt(weighted.length)];
+        List<String> params = new ArrayList<>();
+        if (!endpoint.fixedParams.isEmpty()) {
+            params.add(endpoint.fixedParams);
+        }
+        addCondition(params, endpoint.paged);
+        if (endpoint.paged) {
+            params.add("page=" + random.nextInt(MAX_PAGE));
+            params.add("size=" + PAGE_SIZES[random.nextInt(PAGE_SIZES.length)]);
+        }
+        String query = String.join("&", params);
+        return new Request(endpoint, query.isEmpty() ? endpoint.path : endpoint.path + "?" + query);
+    }
+
+    // /v1 은 페이징이 없으므로 결과가 작은 조건만 쓴다.
+    private void addCondition(List<String> params, boolean paged) {
+        int shape = paged ? random.nextInt(6) : 4 + random.nextInt(2);
+        switch (shape) {
+            case 0:
+                break;
+            case 1:
+                params.add("teamName=" + teamName(random.nextInt(teams)));
+                break;
+            case 2: {
+                int ageGoe = random.nextInt(90);
+                params.add("ageGoe=" + ageGoe);
+                params.add("ageLoe=" + (ageGoe + 10));
+                break;
+            }
+            case 3: {
+                int ageGoe = random.nextInt(90);
+                params.add("teamName=" + teamName(random.nextInt(teams)));
+                params.add("ageGoe=" + ageGoe);
+                params.add("ageLoe=" + (ageGoe + 10));
+                break;
+            }
+            case 4:
+                params.add("username=" + encode("member" + random.nextInt(members)));
+                break;
+            default:
+                // member123 이면 member123, member1230 ~ member1239, member12300 ~ ...
+                params.add("usernameStartsWith=" + encode("member" + random.nextInt(Math.max(1, members / 10))));
+                break;
+        }
+    }
+
+    // MemberBulkLoader.teamName 과 같은 규칙
+    private static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Accept: application/x-jackson-smile 또는 application/cbor 요청에 같은 객체를 바이너리 형식으로 응답한다.
+ * 필드 이름 / 숫자를 텍스트로 쓰지 않으므로 큰 페이지에서 응답 크기와 직렬화 비용이 줄어든다.
+ * <p>
+ * jackson-dataformat-smile / cbor 가 classpath 에 있으면 Spring MVC 가 JSON converter 뒤에 두 converter 를 넣지만,
+ * spring.jackson.* 설정이 적용되지 않은 ObjectMapper 를 쓰므로 같은 자리에서 Boot 의 builder 로 만든 것으로 바꾼다.
+ * JSON converter 가 앞에 있으므로 Accept 가 없거나 *&#47;* 인 요청은 지금처럼 JSON 으로 응답한다.
+ */
+@Configuration
+public class BinaryFormatConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public BinaryFormatConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // builder 는 prototype 빈이라 형식마다 새로 받는다.
+        converters.replaceAll(converter -> {
+            if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+                return new MappingJackson2SmileHttpMessageConverter(
+                        objectMapperBuilder.getObject().factory(new SmileFactory()).build());
+            }
+            if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+                return new MappingJackson2CborHttpMessageConverter(
+                        objectMapperBuilder.getObject().factory(new CBORFactory()).build());
+            }
+            return converter;
+        });
+    }
+}
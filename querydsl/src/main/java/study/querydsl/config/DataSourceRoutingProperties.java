@@ -0,0 +1,39 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties("member.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    private boolean enabled;
+
+    private Node primary = new Node();
+
+    private List<Node> replicas = new ArrayList<>();
+
+    // 이 값보다 뒤처진 replica 로는 읽기를 보내지 않는다.
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    private Duration checkInterval = Duration.ofSeconds(10);
+
+    // replica 의 지연 시간(초)을 돌려주는 쿼리. 비어 있으면 연결 가능 여부만 확인한다.
+    // 예) PostgreSQL: select coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)
+    private String lagQuery;
+
+    @Getter
+    @Setter
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
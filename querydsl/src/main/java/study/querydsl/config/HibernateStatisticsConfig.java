@@ -0,0 +1,46 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate 통계 수집과 쿼리 계획 캐시 크기 설정. 수집한 값은 /actuator/hibernate 로 본다. ({@link HibernateStatisticsEndpoint})
+ * <p>
+ * 통계를 켜면 쿼리마다 시간을 재고 JPQL 별 집계를 갱신하므로 평소에는 꺼 둔다.
+ * 2차 캐시를 켜면 {@link SecondLevelCacheConfig} 가 따로 켜므로 여기서는 false 를 넣지 않는다.
+ */
+@Configuration
+public class HibernateStatisticsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatisticsCustomizer(
+            @Value("${member.hibernate-statistics.enabled:false}") boolean statisticsEnabled,
+            @Value("${member.query-plan-cache.max-size:2048}") int planCacheMaxSize,
+            @Value("${member.query-plan-cache.parameter-metadata-max-size:128}") int parameterMetadataMaxSize) {
+        return properties -> {
+            if (statisticsEnabled) {
+                properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            }
+            // JPQL 문자열 -> 파싱된 계획 캐시. 검색 shape 처럼 JPQL 종류가 많으면 이보다 작을 때 계속 다시 파싱한다.
+            properties.put(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE, planCacheMaxSize);
+            properties.put(AvailableSettings.QUERY_PLAN_CACHE_PARAMETER_METADATA_MAX_SIZE, parameterMetadataMaxSize);
+        };
+    }
+
+    @Bean
+    public HibernateStatisticsEndpoint hibernateStatisticsEndpoint(
+            EntityManagerFactory emf,
+            @Value("${member.hibernate-statistics.max-queries:50}") int maxQueries) {
+        return new HibernateStatisticsEndpoint(emf, maxQueries);
+    }
+
+    @Bean
+    public HibernateStatisticsJmxExtension hibernateStatisticsJmxExtension(HibernateStatisticsEndpoint endpoint) {
+        return new HibernateStatisticsJmxExtension(endpoint);
+    }
+}
@@ -0,0 +1,141 @@
+package study.querydsl.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/hibernate, Hibernate {@link Statistics} 요약.
+ * <ul>
+ *     <li>queryPlanCache: JPQL 계획 캐시 적중률. miss 가 계속 늘면 JPQL 종류가 캐시 크기보다 많다는 뜻이다.</li>
+ *     <li>queries: 실행 횟수가 많은 JPQL 부터 실행 횟수, 평균 / 최대 시간 (ms), 계획 캐시 miss</li>
+ *     <li>entities: 엔티티별 load / fetch 수와 세션당 평균 load 수 (OSIV 에서는 세션 하나가 요청 하나다.)</li>
+ *     <li>secondLevelCache: 2차 캐시 / query cache 영역별 hit / miss / put</li>
+ * </ul>
+ * HTTP 로는 읽기만 된다. 통계를 0 으로 되돌리는 reset 은 JMX 로만 연다. ({@link HibernateStatisticsJmxExtension})
+ * 기본 web exposure 에는 넣지 않고 measure 프로필에서만 /actuator/hibernate 를 연다.
+ * member.hibernate-statistics.enabled=false 이면 값이 모두 0 이다.
+ */
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final EntityManagerFactory emf;
+    private final int maxQueries;
+
+    public HibernateStatisticsEndpoint(EntityManagerFactory emf, int maxQueries) {
+        this.emf = emf;
+        this.maxQueries = maxQueries;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+        Statistics statistics = sessionFactory.getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("since", Instant.ofEpochMilli(statistics.getStartTime()));
+        result.put("sessions", statistics.getSessionOpenCount());
+        result.put("transactions", statistics.getTransactionCount());
+        result.put("preparedStatements", statistics.getPrepareStatementCount());
+        result.put("flushes", statistics.getFlushCount());
+        result.put("queryPlanCache", queryPlanCache(sessionFactory, statistics));
+        result.put("queries", queries(statistics));
+        result.put("entities", entities(statistics));
+        result.put("secondLevelCache", secondLevelCache(statistics));
+        return result;
+    }
+
+    // 통계를 0 으로 되돌린다. 인증 없이 HTTP 로 열리지 않도록 operation 으로 두지 않는다.
+    public void reset() {
+        emf.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    private Map<String, Object> queryPlanCache(SessionFactory sessionFactory, Statistics statistics) {
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long misses = statistics.getQueryPlanCacheMissCount();
+        Map<String, Object> planCache = new LinkedHashMap<>();
+        planCache.put("maxSize", sessionFactory.getProperties().get(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE));
+        planCache.put("hits", hits);
+        planCache.put("misses", misses);
+        planCache.put("hitRatio", ratio(hits, hits + misses));
+        return planCache;
+    }
+
+    private Map<String, Object> queries(Statistics statistics) {
+        Map<String, Object> queries = new LinkedHashMap<>();
+        Arrays.stream(statistics.getQueries())
+                .map(query -> Map.entry(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong((Map.Entry<String, QueryStatistics> entry) -> entry.getValue().getExecutionCount()).reversed())
+                .limit(maxQueries)
+                .forEach(entry -> {
+                    QueryStatistics query = entry.getValue();
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    values.put("executions", query.getExecutionCount());
+                    values.put("rows", query.getExecutionRowCount());
+                    values.put("avgTimeMs", query.getExecutionAvgTime());
+                    values.put("maxTimeMs", query.getExecutionMaxTime());
+                    values.put("planCacheMisses", query.getPlanCacheMissCount());
+                    values.put("cacheHits", query.getCacheHitCount());
+                    queries.put(entry.getKey(), values);
+                });
+        return queries;
+    }
+
+    private Map<String, Object> entities(Statistics statistics) {
+        Map<String, Object> entities = new LinkedHashMap<>();
+        entities.put("loads", statistics.getEntityLoadCount());
+        entities.put("fetches", statistics.getEntityFetchCount());
+        entities.put("collectionLoads", statistics.getCollectionLoadCount());
+        entities.put("collectionFetches", statistics.getCollectionFetchCount());
+        entities.put("loadsPerSession", ratio(statistics.getEntityLoadCount(), statistics.getSessionOpenCount()));
+
+        Map<String, Object> perEntity = new LinkedHashMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entity = statistics.getEntityStatistics(entityName);
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("loads", entity.getLoadCount());
+            values.put("fetches", entity.getFetchCount());
+            values.put("inserts", entity.getInsertCount());
+            values.put("updates", entity.getUpdateCount());
+            values.put("deletes", entity.getDeleteCount());
+            perEntity.put(entityName, values);
+        }
+        entities.put("byEntity", perEntity);
+        return entities;
+    }
+
+    private Map<String, Object> secondLevelCache(Statistics statistics) {
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("hits", region.getHitCount());
+            values.put("misses", region.getMissCount());
+            values.put("puts", region.getPutCount());
+            values.put("hitRatio", ratio(region.getHitCount(), region.getHitCount() + region.getMissCount()));
+            regions.put(regionName, values);
+        }
+        return regions;
+    }
+
+    // 분모가 0 이면 null
+    private static Double ratio(long numerator, long denominator) {
+        return denominator == 0 ? null : (double) numerator / denominator;
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.EndpointJmxExtension;
+
+import java.util.Map;
+
+/**
+ * JMX 에서만 보이는 hibernate endpoint 의 operation. 측정 구간을 나눌 때 통계를 0 으로 되돌린다.
+ * JMX 는 spring.jmx.enabled=true 일 때만 열린다. (measure 프로필)
+ */
+@EndpointJmxExtension(endpoint = HibernateStatisticsEndpoint.class)
+public class HibernateStatisticsJmxExtension {
+
+    private final HibernateStatisticsEndpoint endpoint;
+
+    public HibernateStatisticsJmxExtension(HibernateStatisticsEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return endpoint.statistics();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        endpoint.reset();
+    }
+}
@@ -0,0 +1,34 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import study.querydsl.support.SqlStatementCounter;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 페이징 검색의 content / count 쿼리를 동시에 돌리는 전용 스레드 풀.
+ * 스레드 하나가 커넥션 하나를 잡으므로 pool-size 는 커넥션 풀 크기보다 충분히 작게 둔다.
+ */
+@Configuration
+public class MemberSearchExecutorConfig {
+
+    @Bean(name = "memberSearchExecutor")
+    public ThreadPoolTaskExecutor memberSearchExecutor(@Value("${member.search.parallel.pool-size:4}") int poolSize,
+                                                       @Value("${member.search.parallel.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("member-search-");
+        // 큐가 가득 차면 더 쌓지 않고 TaskRejectedException 으로 바로 실패시킨다.
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        // 작업 스레드에서 실행한 쿼리도 요청의 SQL 수 (SqlStatementCountFilter) 에 넣는다.
+        executor.setTaskDecorator(SqlStatementCounter::propagate);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+}
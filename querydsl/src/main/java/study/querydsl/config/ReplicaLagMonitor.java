@@ -0,0 +1,42 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * checkInterval 마다 replica 지연을 확인해서 maxLag 를 넘은 replica 를 읽기 대상에서 뺀다.
+ */
+public class ReplicaLagMonitor implements InitializingBean, DisposableBean {
+
+    private final ReplicationRoutingDataSource routingDataSource;
+    private final DataSourceRoutingProperties properties;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicaLagMonitor(ReplicationRoutingDataSource routingDataSource, DataSourceRoutingProperties properties) {
+        this.routingDataSource = routingDataSource;
+        this.properties = properties;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = properties.getCheckInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void check() {
+        routingDataSource.checkReplicas(properties.getLagQuery(), properties.getMaxLag());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,99 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * readOnly 트랜잭션은 정상인 replica 중 하나로, 나머지는 primary 로 보낸다.
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 정해지지 않았으므로 반드시 LazyConnectionDataSourceProxy 로 감싸서 쓴다.
+ */
+@Slf4j
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys;
+    private final Map<String, DataSource> replicas;
+    private final List<String> healthyReplicas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicationRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        this.replicas = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            targets.put(key, replicas.get(i));
+            this.replicas.put(key, replicas.get(i));
+            keys.add(key);
+        }
+        this.replicaKeys = List.copyOf(keys);
+        this.healthyReplicas.addAll(replicaKeys);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            // 읽을 수 있는 replica 가 없으면 primary 에서 읽는다.
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * replica 마다 지연을 확인해서 maxLag 이내인 replica 만 읽기 대상으로 남긴다.
+     */
+    public void checkReplicas(String lagQuery, Duration maxLag) {
+        for (String key : replicaKeys) {
+            boolean healthy = isHealthy(replicas.get(key), lagQuery, maxLag);
+            if (healthy && !healthyReplicas.contains(key)) {
+                healthyReplicas.add(key);
+                log.info("[routing] {} is back in the read pool", key);
+            } else if (!healthy && healthyReplicas.remove(key)) {
+                log.warn("[routing] {} removed from the read pool, reads fall back to {}", key,
+                        healthyReplicas.isEmpty() ? PRIMARY : healthyReplicas);
+            }
+        }
+    }
+
+    public List<String> getHealthyReplicas() {
+        return List.copyOf(healthyReplicas);
+    }
+
+    private boolean isHealthy(DataSource replica, String lagQuery, Duration maxLag) {
+        try (Connection connection = replica.getConnection()) {
+            if (lagQuery == null || lagQuery.isBlank()) {
+                return connection.isValid(1);
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                double lagSeconds = resultSet.next() ? resultSet.getDouble(1) : Double.MAX_VALUE;
+                return lagSeconds * 1000 <= maxLag.toMillis();
+            }
+        } catch (Exception e) {
+            log.debug("[routing] replica check failed", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberChangedEvent;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Team, Team.members 와 query cache 를 위한 Hibernate 2차 캐시 설정.
+ * hibernate-jcache 가 클래스패스에 있으면 Hibernate 가 알아서 켜 버리므로 꺼져 있을 때도 명시적으로 끈다.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    static final String TEAM_MEMBERS_ROLE = Team.class.getName() + ".members";
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            @Value("${member.second-level-cache.enabled:false}") boolean enabled) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, enabled);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, enabled);
+            if (!enabled) {
+                return;
+            }
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+            // 영역별 크기는 classpath 의 application.conf 에서 읽는다.
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            // hibernate.second.level.cache.requests{result=hit|miss,region} 등이 /actuator/metrics 에 노출된다.
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    /**
+     * 회원이 바뀌면 팀의 회원 목록 캐시와 query cache 를 비운다.
+     * 벌크 쿼리는 영속성 컨텍스트와 엔티티 변경 감지를 거치지 않으므로 여기서 직접 비워야 한다.
+     */
+    @Slf4j
+    @Component
+    static class TeamCacheEvictor {
+
+        private final EntityManagerFactory emf;
+        private final boolean enabled;
+
+        TeamCacheEvictor(EntityManagerFactory emf,
+                         @Value("${member.second-level-cache.enabled:false}") boolean enabled) {
+            this.emf = emf;
+            this.enabled = enabled;
+        }
+
+        @EventListener
+        public void onMemberChanged(MemberChangedEvent event) {
+            evict(event);
+        }
+
+        // 커밋 전에 다른 트랜잭션이 이전 값으로 다시 채웠을 수 있어서 커밋 후에 한 번 더 비운다.
+        @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+        public void afterMemberChangeCommitted(MemberChangedEvent event) {
+            evict(event);
+        }
+
+        private void evict(MemberChangedEvent event) {
+            if (!enabled) {
+                return;
+            }
+            org.hibernate.Cache cache = emf.unwrap(SessionFactory.class).getCache();
+            // 팀을 옮긴 회원은 이전 팀의 목록에도 남아 있으므로 특정 팀만 골라 비우지 않는다.
+            cache.evictCollectionData(TEAM_MEMBERS_ROLE);
+            if (event.isBulk()) {
+                cache.evictQueryRegions();
+            }
+            log.debug("team second-level cache evicted by {}", event);
+        }
+    }
+}
@@ -2,45 +2,32 @@ package study.querydsl.controller;
 
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import study.querydsl.service.MemberBulkLoader;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
 
-    private final InitMemberService initMemberService;
-    //Post 와 Transactional 을 구분해주어야 한다.
-    @PostConstruct
-    public void init() {
-        initMemberService.init();
-    }
+    private final MemberBulkLoader memberBulkLoader;
 
-    @Component
-    static class InitMemberService{
-        @PersistenceContext
-        private EntityManager em;
+    @Value("${member.seed.count:100}")
+    private int memberCount;
 
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
+    @Value("${member.seed.team-count:2}")
+    private int teamCount;
 
-            for(int i = 0; i < 100; i++){
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member"+i ,i, selectedTeam));
+    @Value("${member.seed.batch-size:1000}")
+    private int batchSize;
 
-            }
-        }
+    //Post 와 Transactional 을 구분해주어야 한다. 트랜잭션은 MemberBulkLoader 가 청크 단위로 연다.
+    @PostConstruct
+    public void init() {
+        memberBulkLoader.load(teamCount, memberCount, batchSize);
     }
 }
@@ -3,14 +3,35 @@ package study.querydsl.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import study.querydsl.dto.InvalidSearchParameterException;
 import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberStatsDto;
+import study.querydsl.dto.SlimPage;
+import study.querydsl.repository.MemberColumnarSnapshot;
+import study.querydsl.repository.MemberCursor;
+import study.querydsl.repository.MemberDataVersion;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.service.MemberExportService;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequiredArgsConstructor
@@ -20,21 +41,150 @@ public class MemberController {
 
     private final MemberRepository memberRepository;
 
+    private final MemberExportService memberExportService;
+
+    private final MemberDataVersion memberDataVersion;
+
+    private final MemberColumnarSnapshot memberColumnarSnapshot;
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     @GetMapping("/v1/members")
-    public List<MemberFormDto> searchMemberV1(MemberSearchCondition condition){
-        return memberJpaRepository.search(condition);
+    public List<MemberFormDto> searchMemberV1(MemberSearchCondition condition, ServletWebRequest request){
+        return conditional(request, () -> memberJpaRepository.search(condition));
     }
 
+    // view=slim 이면 pageable / sort 정보를 뺀 SlimPage, view=rows 이면 행을 배열로 담은 SlimPage 로 응답한다. (아래 핸들러)
+    // Accept 헤더로 application/x-jackson-smile, application/cbor 도 받을 수 있다.
     @GetMapping("/v2/members")
-    public Page<MemberFormDto> searchMemberV2(MemberSearchCondition condition , Pageable pageable){
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Page<MemberFormDto> searchMemberV2(MemberSearchCondition condition , Pageable pageable,
+                                              @RequestParam(defaultValue = "page") String view,
+                                              ServletWebRequest request){
+        requirePageView(view);
+        return conditional(request, () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    @GetMapping(value = "/v2/members", params = "view=slim")
+    public SlimPage<MemberFormDto> searchMemberV2Slim(MemberSearchCondition condition , Pageable pageable,
+                                                      ServletWebRequest request){
+        return conditional(request, () -> SlimPage.of(memberRepository.searchPageSimple(condition, pageable)));
+    }
+
+    @GetMapping(value = "/v2/members", params = "view=rows")
+    public SlimPage<Object[]> searchMemberV2Rows(MemberSearchCondition condition , Pageable pageable,
+                                                 ServletWebRequest request){
+        return conditional(request, () -> SlimPage.rows(memberRepository.searchPageSimple(condition, pageable),
+                MemberFormDto.COLUMNS, MemberFormDto::toRow));
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberFormDto> searchMemberV3(MemberSearchCondition condition , Pageable pageable){
+    public Page<MemberFormDto> searchMemberV3(MemberSearchCondition condition , Pageable pageable,
+                                              @RequestParam(defaultValue = "false") boolean parallel,
+                                              @RequestParam(defaultValue = "exact") String count,
+                                              @RequestParam(defaultValue = "page") String view,
+                                              ServletWebRequest request){
+        requirePageView(view);
+        return conditionalV3(request, parallel, () -> searchPageV3(condition, pageable, parallel, count));
+    }
+
+    @GetMapping(value = "/v3/members", params = "view=slim")
+    public SlimPage<MemberFormDto> searchMemberV3Slim(MemberSearchCondition condition , Pageable pageable,
+                                                      @RequestParam(defaultValue = "false") boolean parallel,
+                                                      @RequestParam(defaultValue = "exact") String count,
+                                                      ServletWebRequest request){
+        return conditionalV3(request, parallel, () -> SlimPage.of(searchPageV3(condition, pageable, parallel, count)));
+    }
+
+    @GetMapping(value = "/v3/members", params = "view=rows")
+    public SlimPage<Object[]> searchMemberV3Rows(MemberSearchCondition condition , Pageable pageable,
+                                                 @RequestParam(defaultValue = "false") boolean parallel,
+                                                 @RequestParam(defaultValue = "exact") String count,
+                                                 ServletWebRequest request){
+        return conditionalV3(request, parallel, () -> SlimPage.rows(searchPageV3(condition, pageable, parallel, count),
+                MemberFormDto.COLUMNS, MemberFormDto::toRow));
+    }
+
+    private Page<MemberFormDto> searchPageV3(MemberSearchCondition condition, Pageable pageable,
+                                             boolean parallel, String count){
+        // count=estimated 이면 total 을 member.search.count-cap 건까지만 센다. (응답의 totalApproximate 확인)
+        if ("estimated".equalsIgnoreCase(count)) {
+            if (parallel) {
+                throw new InvalidSearchParameterException("count=estimated 는 parallel=true 와 함께 쓸 수 없습니다.");
+            }
+            return memberRepository.searchPageEstimated(condition, pageable);
+        }
+        if (!"exact".equalsIgnoreCase(count)) {
+            throw new InvalidSearchParameterException("count 는 exact 또는 estimated 만 가능합니다: " + count);
+        }
+        if (parallel) {
+            return memberRepository.searchPageParallel(condition, pageable);
+        }
         return memberRepository.searchPageComplex(condition, pageable);
     }
 
+    // view=slim / view=rows 는 각자의 핸들러로 가므로 여기로 온 view 는 page 여야 한다.
+    private static void requirePageView(String view){
+        if (SlimPage.View.from(view) != SlimPage.View.PAGE) {
+            throw new InvalidSearchParameterException("view 는 page, slim, rows (소문자) 만 가능합니다: " + view);
+        }
+    }
+
+    // parallel=true 는 content / count 를 각자의 커넥션에서 읽어서 버전과 같은 시점의 데이터라고 할 수 없으므로 ETag 를 붙이지 않는다.
+    private <T> T conditionalV3(ServletWebRequest request, boolean parallel, Supplier<T> body){
+        return parallel ? body.get() : conditional(request, body);
+    }
+
+    // 마지막으로 받아 간 뒤 회원 데이터가 커밋된 적이 없으면 (If-None-Match 가 같으면) 버전만 읽고 304 로 끝낸다.
+    // 버전과 데이터는 같은 읽기 전용 트랜잭션에서 읽는다. ETag 는 url 별로 캐시되므로 검색 조건은 넣지 않는다.
+    private <T> T conditional(ServletWebRequest request, Supplier<T> body){
+        request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return memberDataVersion.read(etag -> request.checkNotModified(etag) ? null : body.get());
+    }
+
+    @GetMapping("/v4/members")
+    public MemberKeysetPage searchMemberV4(MemberSearchCondition condition,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "20") int size,
+                                           @RequestParam(defaultValue = "id") String sort,
+                                           ServletWebRequest request){
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        MemberCursor.SortKey sortKey = MemberCursor.SortKey.from(sort);
+        MemberCursor after = cursor != null ? MemberCursor.decode(cursor) : null;
+        if (after != null && after.getSortKey() != sortKey) {
+            throw new InvalidSearchParameterException("커서의 정렬 키와 요청한 정렬 키가 다릅니다.");
+        }
+        return conditional(request, () -> memberRepository.searchByCursor(condition, after, pageSize, sortKey));
+    }
+
+    @GetMapping("/v1/members/stats")
+    public MemberStatsDto memberStats(MemberSearchCondition condition, ServletWebRequest request){
+        // 열 스냅샷은 refresh-interval 만큼 늦을 수 있어서 db 버전으로 ETag 를 줄 수 없다.
+        if (memberColumnarSnapshot.isReady()) {
+            return memberRepository.searchStats(condition);
+        }
+        return conditional(request, () -> memberRepository.searchStats(condition));
+    }
+
+    // 결과를 메모리에 모으지 않고 읽는 대로 응답에 바로 쓴다.
+    @GetMapping("/v1/members/export")
+    public void exportMembers(MemberSearchCondition condition,
+                              @RequestParam(defaultValue = "ndjson") String format,
+                              HttpServletResponse response) throws IOException {
+        MemberExportService.Format exportFormat = MemberExportService.Format.from(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        memberExportService.export(condition, exportFormat, writer);
+    }
+
+    // 요청 파라미터 검증에서 던진 예외만 400 으로 바꾼다. 그 아래 (Hibernate, Spring Data 등) 의 IllegalArgumentException 은 500 으로 둔다.
+    @ExceptionHandler(InvalidSearchParameterException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequest(InvalidSearchParameterException e){
+        return e.getMessage();
+    }
+
 
 
 
@@ -0,0 +1,29 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.repository.TeamQueryRepository;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamQueryRepository teamQueryRepository;
+
+    // 한 페이지에 담기는 회원 수는 팀 수에 비례하므로 팀 페이지 크기를 제한한다.
+    private static final int MAX_TEAM_PAGE_SIZE = 100;
+
+    @GetMapping("/v1/teams")
+    public Page<TeamMembersDto> searchTeams(@RequestParam(required = false) String teamName, Pageable pageable){
+        Pageable bounded = pageable.getPageSize() > MAX_TEAM_PAGE_SIZE
+                ? PageRequest.of(pageable.getPageNumber(), MAX_TEAM_PAGE_SIZE)
+                : pageable;
+        return teamQueryRepository.searchTeamsWithMembers(teamName, bounded);
+    }
+}
@@ -0,0 +1,18 @@
+package study.querydsl.dto;
+
+/**
+ * 요청으로 받은 검색 / 페이징 파라미터 (커서, 정렬 키, 형식 등) 가 잘못되었을 때 던진다.
+ * 컨트롤러는 이 예외만 400 으로 바꾸므로, 그 밖의 IllegalArgumentException 은 서버 오류로 남는다.
+ */
+public class InvalidSearchParameterException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidSearchParameterException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchParameterException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
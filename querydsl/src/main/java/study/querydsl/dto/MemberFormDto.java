@@ -3,8 +3,14 @@ package study.querydsl.dto;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class MemberFormDto {
+
+    // toRow() 의 열 순서
+    public static final List<String> COLUMNS = List.of("memberId", "username", "age", "teamId", "teamName");
+
     private Long memberId;
     private String username;
     private int age;
@@ -19,4 +25,8 @@ public class MemberFormDto {
         this.teamId = teamId;
         this.teamName = teamName;
     }
+
+    public Object[] toRow(){
+        return new Object[]{memberId, username, age, teamId, teamName};
+    }
 }
@@ -0,0 +1,22 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberKeysetPage {
+
+    private final List<MemberFormDto> content;
+    private final int size;
+    private final boolean hasNext;
+    // 다음 페이지를 요청할 때 그대로 넘겨주는 값, 마지막 페이지라면 null
+    private final String nextCursor;
+
+    public MemberKeysetPage(List<MemberFormDto> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -6,6 +6,9 @@ import lombok.Data;
 public class MemberSearchCondition {
 
     private String username;
+    // username 앞부분 / 일부분 검색
+    private String usernameStartsWith;
+    private String usernameContains;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
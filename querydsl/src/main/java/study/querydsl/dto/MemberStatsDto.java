@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class MemberStatsDto {
+    private long count;
+    // 맞는 회원이 없으면 null
+    private Double avgAge;
+    private Integer minAge;
+    private Integer maxAge;
+    // 팀 이름별 회원 수, 팀이 없는 회원은 noTeamCount 로 따로 센다.
+    private Map<String, Long> countByTeam;
+    private long noTeamCount;
+
+    public MemberStatsDto(long count, Double avgAge, Integer minAge, Integer maxAge,
+                          Map<String, Long> countByTeam, long noTeamCount) {
+        this.count = count;
+        this.avgAge = avgAge;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.countByTeam = countByTeam;
+        this.noTeamCount = noTeamCount;
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * PageImpl 대신 응답에 쓰는 작은 페이지. pageable / sort 정보 없이 페이지 번호와 건수만 담는다.
+ * rows 형식이면 content 의 각 행은 columns 순서의 배열이라 행마다 필드 이름이 반복되지 않는다.
+ */
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SlimPage<T> {
+
+    // rows 형식일 때만 있다.
+    private final List<String> columns;
+    private final List<T> content;
+    private final int page;
+    private final int size;
+    private final long totalElements;
+    private final boolean hasNext;
+    // count=estimated 로 total 을 끝까지 세지 않았으면 true
+    private final boolean totalApproximate;
+
+    private SlimPage(List<String> columns, List<T> content, Page<?> source) {
+        this.columns = columns;
+        this.content = content;
+        this.page = source.getNumber();
+        this.size = source.getSize();
+        this.totalElements = source.getTotalElements();
+        this.hasNext = source.hasNext();
+        this.totalApproximate = source instanceof EstimatedPage && ((EstimatedPage<?>) source).isTotalApproximate();
+    }
+
+    public static <T> SlimPage<T> of(Page<T> page) {
+        return new SlimPage<>(null, page.getContent(), page);
+    }
+
+    public static <T> SlimPage<Object[]> rows(Page<T> page, List<String> columns, Function<T, Object[]> toRow) {
+        List<Object[]> rows = new ArrayList<>(page.getNumberOfElements());
+        for (T element : page.getContent()) {
+            rows.add(toRow.apply(element));
+        }
+        return new SlimPage<>(columns, rows, page);
+    }
+
+    /**
+     * 목록 응답의 형식. PAGE 는 지금까지처럼 PageImpl 을 그대로 직렬화한다.
+     */
+    public enum View {
+        PAGE, SLIM, ROWS;
+
+        public static View from(String value) {
+            try {
+                return View.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSearchParameterException("view 는 page, slim, rows 만 가능합니다: " + value);
+            }
+        }
+    }
+}
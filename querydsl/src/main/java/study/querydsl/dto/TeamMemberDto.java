@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+@Data
+public class TeamMemberDto {
+    private Long memberId;
+    private String username;
+    private int age;
+    // 팀별로 묶을 때만 쓰고 응답에는 내보내지 않는다.
+    @JsonIgnore
+    private Long teamId;
+
+    @QueryProjection
+    public TeamMemberDto(Long memberId, String username, int age, Long teamId){
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+    }
+}
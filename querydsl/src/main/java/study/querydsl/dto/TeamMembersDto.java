@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class TeamMembersDto {
+    private Long teamId;
+    private String teamName;
+    private List<TeamMemberDto> members = new ArrayList<>();
+
+    @QueryProjection
+    public TeamMembersDto(Long teamId, String teamName){
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+}
@@ -0,0 +1,25 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 이름별로 데이터가 커밋된 횟수를 세는 행. 쓰기는 MemberDataVersion 이 JDBC 로 한다.
+ * epoch 는 행을 처음 만든 시각이라, 테이블을 다시 만들어 version 이 0 부터 다시 시작해도 이전 값과 겹치지 않는다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class DataVersion {
+
+    @Id
+    private String name;
+
+    private long epoch;
+
+    private long version;
+}
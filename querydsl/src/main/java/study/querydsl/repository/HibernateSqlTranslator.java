@@ -0,0 +1,32 @@
+package study.querydsl.repository;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.QuerySplitter;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.hql.spi.QueryTranslatorFactory;
+
+import java.util.Collections;
+
+/**
+ * JPQL 을 실행하지 않고 SQL 로만 번역한다. (계획 캐시에도 넣지 않는다)
+ * <p>
+ * 엔티티 이름 (Member) 을 클래스 이름으로 바꾸는 공개 API 가 없어서 Hibernate 내부 클래스 QuerySplitter 를 쓴다.
+ * 내부 클래스는 호환성이 보장되지 않으므로 이 클래스 밖에서는 쓰지 않는다. Hibernate 를 올릴 때 여기만 확인하면 된다.
+ */
+final class HibernateSqlTranslator {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final QueryTranslatorFactory translatorFactory;
+
+    HibernateSqlTranslator(SessionFactoryImplementor sessionFactory) {
+        this.sessionFactory = sessionFactory;
+        this.translatorFactory = sessionFactory.getServiceRegistry().getService(QueryTranslatorFactory.class);
+    }
+
+    String toSql(String jpql) {
+        String query = QuerySplitter.concreteQueries(jpql, sessionFactory)[0];
+        QueryTranslator translator = translatorFactory.createQueryTranslator(jpql, query, Collections.emptyMap(), sessionFactory, null);
+        translator.compile(Collections.emptyMap(), false);
+        return translator.getSQLString();
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * id 목록을 IN 절에 넣을 청크로 나눈다.
+ * <p>
+ * IN 절의 파라미터 개수마다 쿼리 계획이 따로 캐시되므로, 채우기는 Hibernate 의
+ * hibernate.query.in_clause_parameter_padding 이 IN (:ids) 를 2 의 거듭제곱 개로 채우는 것에 맡긴다.
+ * 청크 크기를 2 의 거듭제곱으로 두어서 채운 뒤에도 maxChunkSize 를 넘지 않게 한다.
+ */
+final class IdBatches {
+
+    // Oracle 의 IN 목록 상한 (1000) 보다 작은 2 의 거듭제곱
+    static final int DEFAULT_MAX_CHUNK_SIZE = 512;
+
+    private IdBatches() {
+    }
+
+    /**
+     * null 과 중복을 뺀 id 를 입력 순서대로 maxChunkSize 개씩 나눈다.
+     * maxChunkSize 가 2 의 거듭제곱이 아니면 그보다 작은 2 의 거듭제곱으로 내린다.
+     */
+    static List<List<Long>> chunks(Collection<Long> ids, int maxChunkSize) {
+        if (maxChunkSize < 1) {
+            throw new IllegalArgumentException("maxChunkSize 는 1 이상이어야 합니다: " + maxChunkSize);
+        }
+        int chunkSize = Integer.highestOneBit(maxChunkSize);
+        List<Long> distinct = new ArrayList<>(distinctIds(ids));
+
+        List<List<Long>> chunks = new ArrayList<>((distinct.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            chunks.add(new ArrayList<>(chunk));
+        }
+        return chunks;
+    }
+
+    /**
+     * found 의 값을 ids 의 (중복을 뺀) 순서대로 꺼낸다. 찾지 못한 id 는 건너뛴다.
+     */
+    static <T> List<T> inInputOrder(Collection<Long> ids, Map<Long, T> found) {
+        List<T> ordered = new ArrayList<>(found.size());
+        for (Long id : distinctIds(ids)) {
+            T value = found.get(id);
+            if (value != null) {
+                ordered.add(value);
+            }
+        }
+        return ordered;
+    }
+
+    private static Set<Long> distinctIds(Collection<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids.size() * 2);
+        for (Long id : ids) {
+            if (id != null) {
+                distinct.add(id);
+            }
+        }
+        return distinct;
+    }
+}
@@ -0,0 +1,424 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * member.age -> member id 의 메모리 보조 인덱스. member.age-index.enabled=true 일 때만 채워진다.
+ * <p>
+ * (age, id) 순으로 정렬된 int[] / long[] 에 이분 탐색을 해서 나이 범위의 건수를 db 없이 구한다.
+ * 나이 조건만 있는 searchPageComplex 의 count 만 이 인덱스로 답하고, content 쿼리는 그대로 db 에 나이 범위를 보낸다.
+ * 저장 / 나이 변경으로 생긴 (age, id) 는 작은 정렬된 delta 배열에, 삭제 / 나이 변경으로 없어진 본 배열의 (age, id) 는
+ * removed 배열에 넣었다가 두 배열이 합쳐서 deltaLimit 건이 차면 본 배열에 합친다.
+ * 벌크 update / delete 와 이전 값을 모르는 update 는 어떤 행이 바뀌었는지 알 수 없으므로 인덱스를 내리고 db 에서 다시 읽는다.
+ * 그동안은 {@link #count} 가 비어 있고, 다시 읽기가 끝나기 전에 들어온 요청은 한 번의 읽기로 합쳐진다.
+ * <p>
+ * native SQL 이나 deleteAllInBatch 처럼 이벤트가 발행되지 않는 쓰기는 반영되지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberAgeIndex implements DisposableBean {
+
+    private static final int AGE_ONLY = MemberSearchShape.AGE_GOE | MemberSearchShape.AGE_LOE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int deltaLimit;
+    private final ExecutorService rebuildExecutor;
+
+    private final Object lock = new Object();
+    private final Object rebuildLock = new Object();
+    // null 이면 아직 만들어지지 않았거나 다시 읽는 중
+    private volatile Snapshot snapshot;
+    // 다시 읽는 동안 커밋된 변경, 읽기가 끝나면 순서대로 다시 적용한다. (적용은 멱등이라 이미 읽힌 변경이어도 된다)
+    private List<MemberChangedEvent> pending;
+    private long generation;
+    // 다시 읽기가 예약되었거나 진행 중이면 true, 그동안의 요청은 generation 만 올려서 진행 중인 읽기를 다시 하게 한다.
+    private boolean rebuildScheduled;
+
+    public MemberAgeIndex(JdbcTemplate jdbcTemplate,
+                          @Value("${member.age-index.enabled:false}") boolean enabled,
+                          @Value("${member.age-index.delta-limit:1024}") int deltaLimit,
+                          @Value("${member.age-index.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.enabled = enabled;
+        this.deltaLimit = deltaLimit;
+        this.rebuildExecutor = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-age-index");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    // 나이 외의 조건이 없는 shape 만 이 인덱스로 답할 수 있다.
+    public static boolean supports(int shape) {
+        return (shape & ~AGE_ONLY) == 0;
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * ageGoe <= age <= ageLoe 인 회원 수, null 인 경계는 열려 있다. 인덱스가 준비되지 않았으면 비어 있다.
+     */
+    public OptionalLong count(Integer ageGoe, Integer ageLoe) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(current.count(lower(ageGoe), upper(ageLoe)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    // 롤백된 변경이 인덱스에 남지 않도록 커밋된 뒤에만 반영한다.
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isBulk() || (event.getType() == MemberChangedEvent.Type.UPDATE && !event.isPreviousKnown())) {
+            requestRebuild();
+            return;
+        }
+        if (event.getMemberId() == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (snapshot != null) {
+                snapshot = apply(snapshot, event);
+            } else if (pending != null) {
+                pending.add(event);
+            }
+        }
+    }
+
+    private Snapshot apply(Snapshot current, MemberChangedEvent event) {
+        long id = event.getMemberId();
+        switch (event.getType()) {
+            case SAVE:
+                return current.with(id, event.getAge(), deltaLimit);
+            case UPDATE:
+                if (event.getPreviousAge() == event.getAge()) {
+                    return current;
+                }
+                return current.without(id, event.getPreviousAge(), deltaLimit).with(id, event.getAge(), deltaLimit);
+            case DELETE:
+                return current.without(id, event.getAge(), deltaLimit);
+            default:
+                return current;
+        }
+    }
+
+    private void requestRebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            snapshot = null;
+            generation++;
+            if (rebuildScheduled) {
+                return;
+            }
+            rebuildScheduled = true;
+        }
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    /**
+     * db 에서 (age, id) 를 모두 다시 읽는다. 읽는 도중 다시 읽기 요청이 있었다면 결과를 버리고 다시 읽는다.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            try {
+                rebuildUntilStable();
+            } catch (RuntimeException e) {
+                // 다음 요청이 다시 읽기를 예약할 수 있게 한다.
+                synchronized (lock) {
+                    rebuildScheduled = false;
+                    pending = null;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void rebuildUntilStable() {
+        while (true) {
+            long startGeneration;
+            synchronized (lock) {
+                startGeneration = generation;
+                pending = new ArrayList<>();
+            }
+
+            long start = System.nanoTime();
+            LongIntBuffer loaded = new LongIntBuffer(1024);
+            RowCallbackHandler collect = rs -> loaded.add(rs.getLong(1), rs.getInt(2));
+            jdbcTemplate.query("select member_id, age from member order by age, member_id", collect);
+
+            synchronized (lock) {
+                if (generation != startGeneration) {
+                    continue;
+                }
+                Snapshot rebuilt = new Snapshot(loaded.trimmedValues(), loaded.trimmedKeys());
+                for (MemberChangedEvent event : pending) {
+                    rebuilt = apply(rebuilt, event);
+                }
+                snapshot = rebuilt;
+                pending = null;
+                rebuildScheduled = false;
+            }
+            log.info("[age-index] loaded {} members in {} ms", loaded.size, (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    private static int lower(Integer ageGoe) {
+        return ageGoe != null ? ageGoe : Integer.MIN_VALUE;
+    }
+
+    private static int upper(Integer ageLoe) {
+        return ageLoe != null ? ageLoe : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 변경되지 않는 인덱스 상태. 본 / delta / removed 배열 모두 (age, id) 순으로 정렬되어 있다.
+     * removed 는 본 배열에 있지만 더는 유효하지 않은 항목이고, delta 와 본 배열의 유효한 항목은 겹치지 않는다.
+     */
+    static final class Snapshot {
+        private static final int[] NO_AGES = new int[0];
+        private static final long[] NO_IDS = new long[0];
+
+        private final int[] ages;
+        private final long[] ids;
+        private final int[] deltaAges;
+        private final long[] deltaIds;
+        private final int[] removedAges;
+        private final long[] removedIds;
+
+        Snapshot(int[] ages, long[] ids) {
+            this(ages, ids, NO_AGES, NO_IDS, NO_AGES, NO_IDS);
+        }
+
+        private Snapshot(int[] ages, long[] ids, int[] deltaAges, long[] deltaIds, int[] removedAges, long[] removedIds) {
+            this.ages = ages;
+            this.ids = ids;
+            this.deltaAges = deltaAges;
+            this.deltaIds = deltaIds;
+            this.removedAges = removedAges;
+            this.removedIds = removedIds;
+        }
+
+        long count(int lo, int hi) {
+            if (lo > hi) {
+                return 0;
+            }
+            return (upperBound(ages, hi) - lowerBound(ages, lo))
+                    - (upperBound(removedAges, hi) - lowerBound(removedAges, lo))
+                    + (upperBound(deltaAges, hi) - lowerBound(deltaAges, lo));
+        }
+
+        // 본 배열에서 removed 를 빼고 delta 와 (age, id) 순으로 합쳐서 ids / ages 에 채운다.
+        private void collect(int lo, int hi, long[] outIds, int[] outAges) {
+            int i = lowerBound(ages, lo), to = upperBound(ages, hi);
+            int r = lowerBound(removedAges, lo), removedTo = upperBound(removedAges, hi);
+            int j = lowerBound(deltaAges, lo), deltaTo = upperBound(deltaAges, hi);
+            int k = 0;
+            while (true) {
+                // removed 는 본 배열의 부분집합이고 같은 순서라서 앞에서부터 짝을 맞춰 건너뛸 수 있다.
+                while (i < to && r < removedTo && removedAges[r] == ages[i] && removedIds[r] == ids[i]) {
+                    i++;
+                    r++;
+                }
+                boolean fromMain;
+                if (i < to && j < deltaTo) {
+                    fromMain = before(ages[i], ids[i], deltaAges[j], deltaIds[j]);
+                } else if (i < to) {
+                    fromMain = true;
+                } else if (j < deltaTo) {
+                    fromMain = false;
+                } else {
+                    return;
+                }
+                outAges[k] = fromMain ? ages[i] : deltaAges[j];
+                outIds[k++] = fromMain ? ids[i++] : deltaIds[j++];
+            }
+        }
+
+        // 이미 있는 (age, id) 면 그대로 둔다.
+        Snapshot with(long id, int age, int deltaLimit) {
+            if (indexOf(deltaAges, deltaIds, age, id) >= 0) {
+                return this;
+            }
+            if (indexOf(ages, ids, age, id) >= 0) {
+                int removed = indexOf(removedAges, removedIds, age, id);
+                if (removed < 0) {
+                    return this;
+                }
+                return new Snapshot(ages, ids, deltaAges, deltaIds,
+                        removeAt(removedAges, removed), removeAt(removedIds, removed));
+            }
+            int at = insertionPoint(deltaAges, deltaIds, age, id);
+            return new Snapshot(ages, ids, insertAt(deltaAges, at, age), insertAt(deltaIds, at, id),
+                    removedAges, removedIds).mergedIfFull(deltaLimit);
+        }
+
+        // 없는 (age, id) 면 그대로 둔다.
+        Snapshot without(long id, int age, int deltaLimit) {
+            int delta = indexOf(deltaAges, deltaIds, age, id);
+            if (delta >= 0) {
+                return new Snapshot(ages, ids, removeAt(deltaAges, delta), removeAt(deltaIds, delta),
+                        removedAges, removedIds);
+            }
+            if (indexOf(ages, ids, age, id) < 0 || indexOf(removedAges, removedIds, age, id) >= 0) {
+                return this;
+            }
+            int at = insertionPoint(removedAges, removedIds, age, id);
+            return new Snapshot(ages, ids, deltaAges, deltaIds,
+                    insertAt(removedAges, at, age), insertAt(removedIds, at, id)).mergedIfFull(deltaLimit);
+        }
+
+        private Snapshot mergedIfFull(int deltaLimit) {
+            return deltaAges.length + removedAges.length >= deltaLimit ? merged() : this;
+        }
+
+        // delta 와 removed 를 본 배열에 합친다.
+        Snapshot merged() {
+            int size = Math.toIntExact(count(Integer.MIN_VALUE, Integer.MAX_VALUE));
+            long[] mergedIds = new long[size];
+            int[] mergedAges = new int[size];
+            collect(Integer.MIN_VALUE, Integer.MAX_VALUE, mergedIds, mergedAges);
+            return new Snapshot(mergedAges, mergedIds);
+        }
+
+        private static boolean before(int age, long id, int otherAge, long otherId) {
+            return age < otherAge || (age == otherAge && id < otherId);
+        }
+
+        // 같은 age 안에서는 id 순이므로 age 구간을 찾은 뒤 id 로 이분 탐색한다.
+        private static int indexOf(int[] sortedAges, long[] sortedIds, int age, long id) {
+            int found = Arrays.binarySearch(sortedIds, lowerBound(sortedAges, age), upperBound(sortedAges, age), id);
+            return found >= 0 ? found : -1;
+        }
+
+        private static int insertionPoint(int[] sortedAges, long[] sortedIds, int age, long id) {
+            int found = Arrays.binarySearch(sortedIds, lowerBound(sortedAges, age), upperBound(sortedAges, age), id);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        private static int[] insertAt(int[] values, int at, int value) {
+            int[] result = new int[values.length + 1];
+            System.arraycopy(values, 0, result, 0, at);
+            result[at] = value;
+            System.arraycopy(values, at, result, at + 1, values.length - at);
+            return result;
+        }
+
+        private static long[] insertAt(long[] values, int at, long value) {
+            long[] result = new long[values.length + 1];
+            System.arraycopy(values, 0, result, 0, at);
+            result[at] = value;
+            System.arraycopy(values, at, result, at + 1, values.length - at);
+            return result;
+        }
+
+        private static int[] removeAt(int[] values, int at) {
+            int[] result = new int[values.length - 1];
+            System.arraycopy(values, 0, result, 0, at);
+            System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+            return result;
+        }
+
+        private static long[] removeAt(long[] values, int at) {
+            long[] result = new long[values.length - 1];
+            System.arraycopy(values, 0, result, 0, at);
+            System.arraycopy(values, at + 1, result, at, values.length - at - 1);
+            return result;
+        }
+
+        // age 이상인 첫 위치
+        private static int lowerBound(int[] sorted, int age) {
+            int lo = 0, hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] < age) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // age 보다 큰 첫 위치
+        private static int upperBound(int[] sorted, int age) {
+            int lo = 0, hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] <= age) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // 박싱 없이 (id, age) 쌍을 모으는 버퍼
+    private static final class LongIntBuffer {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntBuffer(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        void add(long key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        long[] trimmedKeys() {
+            return Arrays.copyOf(keys, size);
+        }
+
+        int[] trimmedValues() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
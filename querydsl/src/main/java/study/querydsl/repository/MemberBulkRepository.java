@@ -0,0 +1,206 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 테이블 전체에 한 번에 나가던 벌크 update / delete 를 id 구간 단위로 나눠서 구간마다 커밋한다.
+ * 락은 구간 하나의 행에만 잠깐 걸리고, 영속성 컨텍스트는 em.clear() 대신 영향을 받은 회원 엔티티만 detach 한다.
+ * 구간마다 커밋하므로 트랜잭션 안에서는 (읽기 전용이라도) 호출할 수 없다.
+ */
+@Slf4j
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final int defaultChunkSize;
+
+    public MemberBulkRepository(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${member.bulk.chunk-size:1000}") int defaultChunkSize) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    public long updateUsername(String username, int ageLt) {
+        return updateUsername(username, ageLt, defaultChunkSize);
+    }
+
+    public long updateUsername(String username, int ageLt, int chunkSize) {
+        return run("updateUsername", chunkSize,
+                member.age.lt(ageLt),
+                m -> m.getAge() < ageLt,
+                range -> queryFactory
+                        .update(member)
+                        .set(member.username, username)
+                        .where(range, member.age.lt(ageLt))
+                        .execute(),
+                false);
+    }
+
+    public long addAge(int amount) {
+        return addAge(amount, defaultChunkSize);
+    }
+
+    public long addAge(int amount, int chunkSize) {
+        return run("addAge", chunkSize,
+                null,
+                m -> true,
+                range -> queryFactory
+                        .update(member)
+                        .set(member.age, member.age.add(amount))
+                        .where(range)
+                        .execute(),
+                false);
+    }
+
+    public long deleteByAgeGt(int ageGt) {
+        return deleteByAgeGt(ageGt, defaultChunkSize);
+    }
+
+    public long deleteByAgeGt(int ageGt, int chunkSize) {
+        return run("deleteByAgeGt", chunkSize,
+                member.age.gt(ageGt),
+                m -> m.getAge() > ageGt,
+                range -> queryFactory
+                        .delete(member)
+                        .where(range, member.age.gt(ageGt))
+                        .execute(),
+                true);
+    }
+
+    /**
+     * @param where    대상 행의 조건, 다음 구간의 id 를 고르는 데 쓴다. (null 이면 전체)
+     * @param affected 영속성 컨텍스트에 올라와 있는 회원 중 이번 구간의 쿼리로 바뀌는 회원인지 판단한다.
+     * @param chunk    id 구간 조건을 받아 한 구간의 벌크 쿼리를 실행하고 바뀐 행 수를 돌려준다.
+     */
+    private long run(String operation, int chunkSize,
+                     BooleanExpression where,
+                     Predicate<Member> affected,
+                     Function<BooleanExpression, Long> chunk,
+                     boolean delete) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize 는 0 보다 커야 합니다: " + chunkSize);
+        }
+        // 읽기 전용 트랜잭션이라도 REQUIRES_NEW 로 시작한 구간은 다른 EntityManager 를 쓰므로,
+        // 호출한 쪽의 영속성 컨텍스트에서 바뀐 회원을 detach 할 수 없다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("구간마다 커밋하므로 트랜잭션 밖에서 호출해야 합니다.");
+        }
+
+        Counter rowCounter = Counter.builder("member.bulk.rows")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        Timer chunkTimer = Timer.builder("member.bulk.chunk")
+                .tag("operation", operation)
+                .register(meterRegistry);
+
+        long start = System.nanoTime();
+        long total = 0;
+        long chunks = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            long after = lastId;
+            // id 가 듬성듬성해도 빈 구간이 생기지 않도록 실제 대상 id 를 keyset 으로 chunkSize 개씩 읽고, 그 id 구간만 바꾼다.
+            ChunkResult result = chunkTimer.record(() -> transactionTemplate.execute(status -> {
+                List<Long> ids = queryFactory
+                        .select(member.id)
+                        .from(member)
+                        .where(member.id.gt(after), where)
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .fetch();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                long from = ids.get(0);
+                long to = ids.get(ids.size() - 1);
+                long updated = chunk.apply(member.id.between(from, to));
+                detachAffected(from, to, affected);
+                if (updated > 0) {
+                    eventPublisher.publishEvent(delete
+                            ? MemberChangedEvent.bulkDeleted(updated)
+                            : MemberChangedEvent.bulkUpdated(updated));
+                }
+                return new ChunkResult(to, updated);
+            }));
+            if (result == null) {
+                break;
+            }
+            lastId = result.lastId;
+            chunks++;
+            total += result.updated;
+            rowCounter.increment(result.updated);
+
+            if (chunks % 100 == 0) {
+                log.info("[bulk] {} {} chunks, {} rows ({} rows/s)", operation, chunks, total, rowsPerSecond(total, start));
+            }
+        }
+        log.info("[bulk] {} done, {} chunks, {} rows ({} rows/s)", operation, chunks, total, rowsPerSecond(total, start));
+        return total;
+    }
+
+    private static long rowsPerSecond(long rows, long startNanos) {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 0.001);
+        return (long) (rows / seconds);
+    }
+
+    private static class ChunkResult {
+        private final long lastId;
+        private final long updated;
+
+        ChunkResult(long lastId, long updated) {
+            this.lastId = lastId;
+            this.updated = updated;
+        }
+    }
+
+    // OSIV 처럼 요청 내내 열려 있는 영속성 컨텍스트에서 이번 구간의 영향을 받은 회원만 떼어내서,
+    // 다음에 조회하면 db 의 값을 다시 읽게 한다. 나머지 엔티티는 그대로 남는다.
+    private void detachAffected(long fromId, long toId, Predicate<Member> affected) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (!(entry.getKey() instanceof Member)) {
+                continue;
+            }
+            Member managed = (Member) entry.getKey();
+            Long id = managed.getId();
+            if (id != null && id >= fromId && id <= toId && affected.test(managed)) {
+                em.detach(managed);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+import study.querydsl.entity.Member;
+
+/**
+ * 회원 데이터가 바뀌었을 때 발행되는 이벤트.
+ * 검색 결과 캐시처럼 회원 데이터에서 파생된 값들은 이 이벤트를 받아 무효화한다.
+ * <p>
+ * 엔티티 insert / update / delete 는 어느 경로 (MemberJpaRepository, Spring Data, dirty checking, em.remove) 로 바뀌든
+ * flush 때 {@link MemberEntityChangeListener} 가 발행하고, 벌크 JPQL 은 실행한 쪽이 직접 발행한다.
+ * Spring Data 의 deleteAllInBatch 나 native SQL 처럼 엔티티를 거치지 않는 쓰기는 발행되지 않는다.
+ */
+@Getter
+@ToString
+public class MemberChangedEvent {
+
+    public enum Type {
+        SAVE, UPDATE, DELETE, BULK_UPDATE, BULK_DELETE,
+        // 팀 이름 변경 / 삭제, 검색 결과의 teamName 이 바뀐다.
+        TEAM_CHANGE
+    }
+
+    private final Type type;
+    // SAVE / UPDATE / DELETE 일 때만 채워진다. flush 시점의 값 (DELETE 는 지우기 전 값)
+    private final Long memberId;
+    private final String username;
+    private final int age;
+    // UPDATE 일 때 바뀌기 전 값. detached 엔티티를 update 하면 알 수 없어서 previousKnown 이 false 다.
+    private final boolean previousKnown;
+    private final String previousUsername;
+    private final int previousAge;
+    private final long affectedRows;
+
+    private MemberChangedEvent(Type type, Long memberId, String username, int age,
+                               boolean previousKnown, String previousUsername, int previousAge, long affectedRows) {
+        this.type = type;
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.previousKnown = previousKnown;
+        this.previousUsername = previousUsername;
+        this.previousAge = previousAge;
+        this.affectedRows = affectedRows;
+    }
+
+    public static MemberChangedEvent saved(Member member) {
+        return new MemberChangedEvent(Type.SAVE, member.getId(), member.getUsername(), member.getAge(), false, null, 0, 1);
+    }
+
+    public static MemberChangedEvent updated(Member member, String previousUsername, int previousAge) {
+        return new MemberChangedEvent(Type.UPDATE, member.getId(), member.getUsername(), member.getAge(), true, previousUsername, previousAge, 1);
+    }
+
+    public static MemberChangedEvent updatedWithoutPrevious(Member member) {
+        return new MemberChangedEvent(Type.UPDATE, member.getId(), member.getUsername(), member.getAge(), false, null, 0, 1);
+    }
+
+    public static MemberChangedEvent deleted(Long memberId, String username, int age) {
+        return new MemberChangedEvent(Type.DELETE, memberId, username, age, false, null, 0, 1);
+    }
+
+    public static MemberChangedEvent bulkUpdated(long affectedRows) {
+        return new MemberChangedEvent(Type.BULK_UPDATE, null, null, 0, false, null, 0, affectedRows);
+    }
+
+    public static MemberChangedEvent bulkDeleted(long affectedRows) {
+        return new MemberChangedEvent(Type.BULK_DELETE, null, null, 0, false, null, 0, affectedRows);
+    }
+
+    public static MemberChangedEvent teamChanged() {
+        return new MemberChangedEvent(Type.TEAM_CHANGE, null, null, 0, false, null, 0, 0);
+    }
+
+    // 어떤 행이 바뀌었는지 알 수 없는 변경
+    public boolean isBulk() {
+        return type == Type.BULK_UPDATE || type == Type.BULK_DELETE;
+    }
+}
@@ -0,0 +1,168 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 분석용 검색이 읽는 {@link MemberColumns} 스냅샷을 들고 있다가 refresh-interval 마다 갱신한다.
+ * member.columnar.enabled=true 일 때만 채워진다.
+ * <p>
+ * 저장 / 수정 / 삭제된 회원은 커밋 후 id 만 모아 두었다가 다음 갱신 때 그 행들만 다시 읽어서 바꾸고 (없으면 지운다),
+ * 벌크 update / delete 나 팀 이름 변경이 있었으면 전체를 다시 읽는다. 갱신 사이에는 최대 refresh-interval 만큼 늦은 데이터가 보인다.
+ * <p>
+ * native SQL, deleteAllInBatch, 다른 인스턴스의 쓰기처럼 이 인스턴스에 이벤트가 오지 않는 변경은
+ * max-age 마다 전체를 다시 읽을 때에야 반영된다. 그 사이에는 최대 max-age 만큼 늦은 데이터가 보일 수 있다.
+ */
+@Slf4j
+@Component
+public class MemberColumnarSnapshot implements DisposableBean {
+
+    private static final String SELECT = "select m.member_id, m.age, m.username, t.team_id, t.name"
+            + " from member m left join team t on m.team_id = t.team_id";
+    private static final int IN_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long refreshIntervalMillis;
+    private final long maxAgeNanos;
+    private final ScheduledExecutorService refresher;
+
+    private final Object lock = new Object();
+    // null 이면 아직 처음 읽기 전
+    private volatile MemberColumns columns;
+    private boolean reloadRequested = true;
+    private long[] changedIds = new long[16];
+    private int changedCount;
+    // 마지막으로 전체를 읽은 시각 (System.nanoTime), refresh 스레드에서만 쓴다.
+    private long loadedAt;
+
+    public MemberColumnarSnapshot(JdbcTemplate jdbcTemplate,
+                                  @Value("${member.columnar.enabled:false}") boolean enabled,
+                                  @Value("${member.columnar.refresh-interval:2s}") Duration refreshInterval,
+                                  @Value("${member.columnar.max-age:10m}") Duration maxAge,
+                                  @Value("${member.columnar.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.enabled = enabled;
+        this.refresher = enabled ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-columnar");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.refreshIntervalMillis = refreshInterval.toMillis();
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    public boolean isReady() {
+        return columns != null;
+    }
+
+    // 준비되지 않았으면 null
+    public MemberColumns current() {
+        return columns;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            if (event.isBulk() || event.getType() == MemberChangedEvent.Type.TEAM_CHANGE) {
+                reloadRequested = true;
+            } else if (event.getMemberId() != null) {
+                if (changedCount == changedIds.length) {
+                    changedIds = Arrays.copyOf(changedIds, changedCount * 2);
+                }
+                changedIds[changedCount++] = event.getMemberId();
+            }
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("[columnar] refresh failed", e);
+        }
+    }
+
+    /**
+     * 밀린 변경을 반영한다. 벌크 변경이나 팀 변경이 있었거나 max-age 가 지났으면 전체를, 아니면 바뀐 회원의 행만 읽는다.
+     */
+    public synchronized void refresh() {
+        boolean reload;
+        long[] ids;
+        synchronized (lock) {
+            reload = reloadRequested;
+            ids = Arrays.copyOf(changedIds, changedCount);
+            reloadRequested = false;
+            changedCount = 0;
+        }
+
+        long start = System.nanoTime();
+        if (reload || columns == null || start - loadedAt >= maxAgeNanos) {
+            MemberColumns.Builder rows = new MemberColumns.Builder(null);
+            jdbcTemplate.query(SELECT + " order by m.member_id", collect(rows));
+            // 전체를 읽는 동안 커밋된 변경은 이미 들어 있을 수 있지만, 아래에서 그 id 를 다시 읽어 바꾸므로 괜찮다.
+            columns = rows.build();
+            loadedAt = start;
+            log.info("[columnar] loaded {} members in {} ms", columns.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+        if (ids.length == 0) {
+            return;
+        }
+
+        Arrays.sort(ids);
+        MemberColumns.Builder rows = new MemberColumns.Builder(null);
+        for (int from = 0; from < ids.length; from += IN_CHUNK) {
+            long[] chunk = Arrays.copyOfRange(ids, from, Math.min(from + IN_CHUNK, ids.length));
+            String placeholders = String.join(",", Collections.nCopies(chunk.length, "?"));
+            jdbcTemplate.query(SELECT + " where m.member_id in (" + placeholders + ") order by m.member_id",
+                    collect(rows), Arrays.stream(chunk).boxed().toArray());
+        }
+        columns = columns.merge(ids, rows);
+        log.debug("[columnar] re-read {} changed members, {} still exist", ids.length, rows.size());
+    }
+
+    private RowCallbackHandler collect(MemberColumns.Builder rows) {
+        return rs -> rows.add(rs.getLong(1), rs.getInt(2), rs.getString(3), teamId(rs), rs.getString(5));
+    }
+
+    private static long teamId(ResultSet rs) throws SQLException {
+        long teamId = rs.getLong(4);
+        return rs.wasNull() ? MemberColumns.NO_TEAM : teamId;
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package study.querydsl.repository;
+
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberStatsDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * member left join team 결과 (MemberFormDto) 를 열 단위로 담은 변경되지 않는 스냅샷. 행은 member id 순이다.
+ * username, team.name 은 사전 (String[]) 의 번호로 저장하고, 팀이 없으면 teamId 는 {@link #NO_TEAM}, 팀 이름 번호는 -1 이다.
+ * username 이 null 인 행도 번호가 -1 이다.
+ * 검색 조건 필터와 집계는 parallel IntStream 으로 코어 수만큼 나눠서 돈다.
+ */
+public final class MemberColumns {
+
+    public static final long NO_TEAM = -1L;
+
+    static final MemberColumns EMPTY = new Builder(null).build();
+
+    private final long[] memberIds;
+    private final int[] ages;
+    private final int[] usernameCodes;
+    private final long[] teamIds;
+    private final int[] teamNameCodes;
+    private final String[] usernames;
+    private final String[] teamNames;
+    private final Map<String, Integer> usernameIndex;
+    private final Map<String, Integer> teamNameIndex;
+
+    private MemberColumns(Builder builder) {
+        this.memberIds = Arrays.copyOf(builder.memberIds, builder.size);
+        this.ages = Arrays.copyOf(builder.ages, builder.size);
+        this.usernameCodes = Arrays.copyOf(builder.usernameCodes, builder.size);
+        this.teamIds = Arrays.copyOf(builder.teamIds, builder.size);
+        this.teamNameCodes = Arrays.copyOf(builder.teamNameCodes, builder.size);
+        this.usernames = builder.usernames.toArray(new String[0]);
+        this.teamNames = builder.teamNames.toArray(new String[0]);
+        this.usernameIndex = Collections.unmodifiableMap(new HashMap<>(builder.usernameIndex));
+        this.teamNameIndex = Collections.unmodifiableMap(new HashMap<>(builder.teamNameIndex));
+    }
+
+    public int size() {
+        return memberIds.length;
+    }
+
+    public MemberStatsDto stats(MemberSearchCondition condition) {
+        IntPredicate matcher = matcher(condition);
+        Aggregate aggregate = matcher == null
+                ? new Aggregate(teamNames.length)
+                : IntStream.range(0, size()).parallel()
+                .filter(matcher)
+                .collect(() -> new Aggregate(teamNames.length), Aggregate::add, Aggregate::combine);
+        return aggregate.toDto(teamNames);
+    }
+
+    // 사전에 없는 username / teamName 을 찾으면 맞는 행이 없으므로 null
+    private IntPredicate matcher(MemberSearchCondition condition) {
+        IntPredicate matcher = row -> true;
+        if (StringUtils.hasText(condition.getUsername())) {
+            Integer code = usernameIndex.get(condition.getUsername());
+            if (code == null) {
+                return null;
+            }
+            int usernameCode = code;
+            matcher = matcher.and(row -> usernameCodes[row] == usernameCode);
+        }
+        if (StringUtils.hasText(condition.getUsernameStartsWith())) {
+            String prefix = condition.getUsernameStartsWith();
+            boolean[] codes = matchingUsernames(username -> username.startsWith(prefix));
+            matcher = matcher.and(row -> usernameCodes[row] >= 0 && codes[usernameCodes[row]]);
+        }
+        if (StringUtils.hasText(condition.getUsernameContains())) {
+            String fragment = condition.getUsernameContains();
+            boolean[] codes = matchingUsernames(username -> username.contains(fragment));
+            matcher = matcher.and(row -> usernameCodes[row] >= 0 && codes[usernameCodes[row]]);
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            Integer code = teamNameIndex.get(condition.getTeamName());
+            if (code == null) {
+                return null;
+            }
+            int teamNameCode = code;
+            matcher = matcher.and(row -> teamNameCodes[row] == teamNameCode);
+        }
+        if (condition.getAgeGoe() != null) {
+            int ageGoe = condition.getAgeGoe();
+            matcher = matcher.and(row -> ages[row] >= ageGoe);
+        }
+        if (condition.getAgeLoe() != null) {
+            int ageLoe = condition.getAgeLoe();
+            matcher = matcher.and(row -> ages[row] <= ageLoe);
+        }
+        return matcher;
+    }
+
+    // 문자열 비교는 사전의 서로 다른 username 마다 한 번만 하고, 행은 번호로 표를 찾는다.
+    private boolean[] matchingUsernames(Predicate<String> test) {
+        boolean[] matching = new boolean[usernames.length];
+        for (int code = 0; code < usernames.length; code++) {
+            matching[code] = test.test(usernames[code]);
+        }
+        return matching;
+    }
+
+    /**
+     * 이 스냅샷에서 rereadIds (정렬됨) 의 행을 빼고, 그 id 들을 db 에서 다시 읽은 rows (id 순) 를 합친 스냅샷.
+     * 다시 읽었는데 rows 에 없는 id 는 지워진 회원이다. 사전 번호는 뒤에만 추가되므로 기존 행의 번호는 그대로 쓴다.
+     */
+    MemberColumns merge(long[] rereadIds, Builder rows) {
+        Builder merged = new Builder(this);
+        int i = 0, j = 0, r = 0;
+        while (i < size() || j < rows.size) {
+            if (i < size()) {
+                while (r < rereadIds.length && rereadIds[r] < memberIds[i]) {
+                    r++;
+                }
+                if (r < rereadIds.length && rereadIds[r] == memberIds[i]) {
+                    i++;
+                    continue;
+                }
+            }
+            if (j == rows.size || (i < size() && memberIds[i] < rows.memberIds[j])) {
+                merged.addEncoded(memberIds[i], ages[i], usernameCodes[i], teamIds[i], teamNameCodes[i]);
+                i++;
+                continue;
+            }
+            merged.add(rows.memberIds[j], rows.ages[j], rows.rawUsername(j), rows.teamIds[j], rows.rawTeamName(j));
+            j++;
+        }
+        return merged.build();
+    }
+
+    /**
+     * 행을 member id 순으로 받아서 사전을 만들며 쌓는다.
+     */
+    static final class Builder {
+        private long[] memberIds = new long[16];
+        private int[] ages = new int[16];
+        private int[] usernameCodes = new int[16];
+        private long[] teamIds = new long[16];
+        private int[] teamNameCodes = new int[16];
+        private int size;
+        private final List<String> usernames;
+        private final List<String> teamNames;
+        private final Map<String, Integer> usernameIndex;
+        private final Map<String, Integer> teamNameIndex;
+
+        // base 의 사전을 이어받는다. (null 이면 빈 사전)
+        Builder(MemberColumns base) {
+            usernames = base == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(base.usernames));
+            teamNames = base == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(base.teamNames));
+            usernameIndex = base == null ? new HashMap<>() : new HashMap<>(base.usernameIndex);
+            teamNameIndex = base == null ? new HashMap<>() : new HashMap<>(base.teamNameIndex);
+        }
+
+        void add(long memberId, int age, String username, long teamId, String teamName) {
+            addEncoded(memberId, age, encode(username, usernames, usernameIndex), teamId,
+                    encode(teamName, teamNames, teamNameIndex));
+        }
+
+        private void addEncoded(long memberId, int age, int usernameCode, long teamId, int teamNameCode) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            usernameCodes[size] = usernameCode;
+            teamIds[size] = teamId;
+            teamNameCodes[size] = teamNameCode;
+            size++;
+        }
+
+        private String rawUsername(int row) {
+            return usernameCodes[row] < 0 ? null : usernames.get(usernameCodes[row]);
+        }
+
+        private String rawTeamName(int row) {
+            return teamNameCodes[row] < 0 ? null : teamNames.get(teamNameCodes[row]);
+        }
+
+        int size() {
+            return size;
+        }
+
+        MemberColumns build() {
+            return new MemberColumns(this);
+        }
+
+        // null 은 사전에 넣지 않고 -1 로 둔다. ("" 와 구분된다)
+        private static int encode(String value, List<String> dictionary, Map<String, Integer> index) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                index.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    // 스레드마다 하나씩 만들어서 부분 집계한 뒤 합친다.
+    private final class Aggregate {
+        private long count;
+        private long ageSum;
+        private int minAge = Integer.MAX_VALUE;
+        private int maxAge = Integer.MIN_VALUE;
+        private long noTeam;
+        private final long[] perTeam;
+
+        Aggregate(int teams) {
+            perTeam = new long[teams];
+        }
+
+        void add(int row) {
+            int age = ages[row];
+            count++;
+            ageSum += age;
+            minAge = Math.min(minAge, age);
+            maxAge = Math.max(maxAge, age);
+            if (teamNameCodes[row] < 0) {
+                noTeam++;
+            } else {
+                perTeam[teamNameCodes[row]]++;
+            }
+        }
+
+        void combine(Aggregate other) {
+            count += other.count;
+            ageSum += other.ageSum;
+            minAge = Math.min(minAge, other.minAge);
+            maxAge = Math.max(maxAge, other.maxAge);
+            noTeam += other.noTeam;
+            for (int i = 0; i < perTeam.length; i++) {
+                perTeam[i] += other.perTeam[i];
+            }
+        }
+
+        MemberStatsDto toDto(String[] teamNames) {
+            // 사전 순서가 아니라 팀 이름 순, db 집계 (MemberRepositoryImpl.searchStats) 와 같은 순서다.
+            Map<String, Long> countByTeam = new TreeMap<>();
+            for (int i = 0; i < perTeam.length; i++) {
+                if (perTeam[i] > 0) {
+                    countByTeam.put(teamNames[i], perTeam[i]);
+                }
+            }
+            return new MemberStatsDto(count,
+                    count == 0 ? null : (double) ageSum / count,
+                    count == 0 ? null : minAge,
+                    count == 0 ? null : maxAge,
+                    countByTeam,
+                    noTeam);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import study.querydsl.dto.InvalidSearchParameterException;
+import study.querydsl.dto.MemberFormDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * keyset 페이징에서 마지막으로 내려준 행의 (정렬 키, member.id) 를 담는 커서.
+ * 클라이언트에게는 base64 로 인코딩된 불투명한 문자열로만 노출한다.
+ */
+@Getter
+public class MemberCursor {
+
+    public enum SortKey {
+        ID, AGE;
+
+        public static SortKey from(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return SortKey.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSearchParameterException("지원하지 않는 정렬 키입니다: " + value);
+            }
+        }
+    }
+
+    private static final String DELIMITER = ":";
+
+    private final SortKey sortKey;
+    private final long lastValue;
+    private final long lastId;
+
+    public MemberCursor(SortKey sortKey, long lastValue, long lastId) {
+        this.sortKey = sortKey;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    public static MemberCursor of(SortKey sortKey, MemberFormDto last) {
+        long value = sortKey == SortKey.AGE ? last.getAge() : last.getMemberId();
+        return new MemberCursor(sortKey, value, last.getMemberId());
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + DELIMITER + lastValue + DELIMITER + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(DELIMITER);
+            if (parts.length != 3) {
+                throw new InvalidSearchParameterException("잘못된 커서입니다: " + cursor);
+            }
+            return new MemberCursor(SortKey.valueOf(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException 도 여기로 들어온다.
+            throw new InvalidSearchParameterException("잘못된 커서입니다: " + cursor, e);
+        }
+    }
+}
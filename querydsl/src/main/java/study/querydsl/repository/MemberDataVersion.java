@@ -0,0 +1,127 @@
+package study.querydsl.repository;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 회원 데이터의 버전. 조회 응답의 ETag 로 쓴다.
+ * <p>
+ * 버전은 db 의 data_version 행에 있고, 회원을 바꾼 트랜잭션이 커밋된 뒤 짧은 별도 트랜잭션에서 한 번 올린다.
+ * 그래서 롤백되면 버전도 그대로이고, 인스턴스가 여러 개여도 모두 같은 버전을 본다.
+ * 변경 트랜잭션은 이 행을 잡지 않으므로 회원을 바꾸는 트랜잭션 (벌크 청크, REQUIRES_NEW 청크) 끼리 줄을 서지 않는다.
+ * 조회는 {@link #read} 로 버전과 데이터를 같은 읽기 전용 트랜잭션 (라우팅을 켜면 같은 replica 의 같은 커넥션) 에서 읽는다.
+ * 버전을 먼저 읽으므로 응답 데이터는 ETag 의 버전보다 오래되지 않는다. 다른 커넥션에서 읽는 조회 (parallel=true) 나
+ * 메모리 스냅샷에서 답하는 조회에는 ETag 를 붙이지 않는다.
+ * <p>
+ * 커밋과 버전 올리기 사이의 짧은 동안에는 이전 ETag 에 304 를 줄 수 있다. 그 사이에 읽은 새 데이터는 이전 ETag 로 나가지만
+ * 버전이 오르면 다음 조건부 요청은 200 을 받는다. 커밋 후 올리기 전에 프로세스가 죽으면 다음 변경까지 버전이 그대로다.
+ * {@link MemberChangedEvent} 를 발행하지 않는 쓰기 (native SQL, deleteAllInBatch) 는 버전을 올리지 않는다.
+ */
+@Component
+public class MemberDataVersion {
+
+    static final String NAME = "member";
+
+    // read 안에서 읽은 ETag, 검색 캐시가 키에 넣는다.
+    private static final Object READ_ETAG = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final TransactionTemplate bumpTx;
+    // 이 트랜잭션에서 이미 버전 올리기를 예약했는지
+    private final Object bumpScheduled = new Object();
+
+    public MemberDataVersion(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        // afterCommit 에서는 끝난 트랜잭션의 자원이 아직 묶여 있어서 새 트랜잭션을 따로 연다.
+        this.bumpTx = new TransactionTemplate(transactionManager);
+        this.bumpTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createRow() {
+        try {
+            jdbcTemplate.update("insert into data_version (name, epoch, version) select ?, ?, 0"
+                    + " where not exists (select 1 from data_version where name = ?)", NAME, System.currentTimeMillis(), NAME);
+        } catch (DuplicateKeyException e) {
+            // 다른 인스턴스가 먼저 만들었다.
+        }
+    }
+
+    // 롤백된 변경으로 버전이 오르지 않도록 커밋 후에 트랜잭션마다 한 번 올린다.
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(bumpScheduled)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(bumpScheduled, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bumpTx.executeWithoutResult(status -> bump());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(bumpScheduled);
+            }
+        });
+    }
+
+    private void bump() {
+        if (jdbcTemplate.update("update data_version set version = version + 1 where name = ?", NAME) == 0) {
+            // 시작 후 테이블이 다시 만들어진 경우
+            jdbcTemplate.update("insert into data_version (name, epoch, version) values (?, ?, 1)", NAME, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 읽기 전용 트랜잭션을 열고 지금 버전의 ETag 를 읽은 뒤, 같은 트랜잭션에서 body 를 실행한다.
+     */
+    public <T> T read(Function<String, T> body) {
+        return readOnlyTx.execute(status -> {
+            String etag = etag();
+            if (TransactionSynchronizationManager.hasResource(READ_ETAG)) {
+                return body.apply(etag);
+            }
+            TransactionSynchronizationManager.bindResource(READ_ETAG, etag);
+            try {
+                return body.apply(etag);
+            } finally {
+                TransactionSynchronizationManager.unbindResource(READ_ETAG);
+            }
+        });
+    }
+
+    /**
+     * 지금 트랜잭션의 {@link #read} 가 읽은 ETag, read 밖이면 null.
+     * 같은 버전을 읽은 요청끼리만 결과를 나눠 쓰도록 검색 캐시가 키에 넣는다.
+     */
+    static String currentReadEtag() {
+        return (String) TransactionSynchronizationManager.getResource(READ_ETAG);
+    }
+
+    // 같은 버전이면 json / smile 등 형식과 상관없이 내용이 같으므로 weak ETag 로 준다.
+    public String etag() {
+        List<String> etags = jdbcTemplate.query("select epoch, version from data_version where name = ?",
+                (rs, rowNum) -> "W/\"" + Long.toString(rs.getLong(1), 36) + "-" + rs.getLong(2) + "\"", NAME);
+        return etags.isEmpty() ? "W/\"0-0\"" : etags.get(0);
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Member / Team 엔티티가 flush 될 때 {@link MemberChangedEvent} 를 발행하는 Hibernate 이벤트 리스너.
+ * <p>
+ * MemberJpaRepository, Spring Data 의 save / delete, dirty checking, em.remove 가 모두 이 리스너를 거치므로
+ * 쓰기 경로마다 이벤트를 발행하지 않아도 된다. 이벤트는 트랜잭션 안에서 발행되므로 AFTER_COMMIT 리스너는 커밋된 변경만 받는다.
+ * Team 은 insert 로는 기존 회원의 검색 결과가 바뀌지 않으므로 update / delete 만 알린다.
+ */
+@Component
+public class MemberEntityChangeListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient EntityManagerFactory emf;
+    private final transient ApplicationEventPublisher eventPublisher;
+
+    public MemberEntityChangeListener(EntityManagerFactory emf, ApplicationEventPublisher eventPublisher) {
+        this.emf = emf;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            eventPublisher.publishEvent(MemberChangedEvent.saved((Member) event.getEntity()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Member member = (Member) event.getEntity();
+            Object[] oldState = event.getOldState();
+            eventPublisher.publishEvent(oldState == null
+                    ? MemberChangedEvent.updatedWithoutPrevious(member)
+                    : MemberChangedEvent.updated(member,
+                    (String) value(event.getPersister(), oldState, "username"),
+                    (Integer) value(event.getPersister(), oldState, "age")));
+        } else if (event.getEntity() instanceof Team) {
+            eventPublisher.publishEvent(MemberChangedEvent.teamChanged());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] deletedState = event.getDeletedState();
+            eventPublisher.publishEvent(MemberChangedEvent.deleted((Long) event.getId(),
+                    (String) value(event.getPersister(), deletedState, "username"),
+                    (Integer) value(event.getPersister(), deletedState, "age")));
+        } else if (event.getEntity() instanceof Team) {
+            eventPublisher.publishEvent(MemberChangedEvent.teamChanged());
+        }
+    }
+
+    // 커밋 후 처리는 Spring 의 AFTER_COMMIT 리스너가 하므로 Hibernate 의 post-commit 이벤트는 필요 없다.
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    // 이름에 오타가 있는 이전 메서드, Hibernate 5 에서는 아직 abstract 라 구현해야 한다.
+    @Deprecated
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        return state[persister.getEntityMetamodel().getPropertyIndex(property)];
+    }
+}
@@ -2,10 +2,11 @@ package study.querydsl.repository;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberFormDto;
 import study.querydsl.dto.MemberSearchCondition;
@@ -15,7 +16,11 @@ import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static study.querydsl.entity.QMember.member;
@@ -25,45 +30,118 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberJpaRepository(EntityManager em){
+    private final ApplicationEventPublisher eventPublisher;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchQueryRegistry queryRegistry;
+    private final MemberQueryMetrics queryMetrics;
+    private final MemberReadOnlyHints readOnlyHints;
+
+    public MemberJpaRepository(EntityManager em,
+                               ApplicationEventPublisher eventPublisher,
+                               MemberSearchCache searchCache,
+                               MemberSearchQueryRegistry queryRegistry,
+                               MemberQueryMetrics queryMetrics,
+                               MemberReadOnlyHints readOnlyHints){
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.eventPublisher = eventPublisher;
+        this.searchCache = searchCache;
+        this.queryRegistry = queryRegistry;
+        this.queryMetrics = queryMetrics;
+        this.readOnlyHints = readOnlyHints;
     }
 
 
+    // MemberChangedEvent 는 flush 때 MemberEntityChangeListener 가 발행한다.
     public void save(Member member){
         em.persist(member);
     }
 
+    // 벌크 연산은 영속성 컨텍스트를 무시하고 바로 db 로 가기 때문에 실행 후 컨텍스트를 비운다.
+    public long bulkUpdateUsername(String username, int ageLt){
+        long count = queryFactory
+                .update(member)
+                .set(member.username, username)
+                .where(member.age.lt(ageLt))
+                .execute();
+        em.clear();
+        eventPublisher.publishEvent(MemberChangedEvent.bulkUpdated(count));
+        return count;
+    }
+
+    public long bulkAddAge(int amount){
+        long count = queryFactory
+                .update(member)
+                .set(member.age, member.age.add(amount))
+                .execute();
+        em.clear();
+        eventPublisher.publishEvent(MemberChangedEvent.bulkUpdated(count));
+        return count;
+    }
+
+    public long bulkDeleteByAgeGt(int ageGt){
+        long count = queryFactory
+                .delete(member)
+                .where(member.age.gt(ageGt))
+                .execute();
+        em.clear();
+        eventPublisher.publishEvent(MemberChangedEvent.bulkDeleted(count));
+        return count;
+    }
+
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id){
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    /**
+     * id 들로 회원을 한 번에 찾는다. 결과는 ids 의 순서대로이고 (중복 제외) 없는 id 는 빠진다.
+     * IN 목록은 청크로 나누고, Hibernate 가 2 의 거듭제곱 크기로 채워서 쿼리 계획이 몇 가지로 고정된다. ({@link IdBatches})
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<Long> ids){
+        Map<Long, Member> found = new HashMap<>(ids.size() * 2);
+        for (List<Long> chunk : IdBatches.chunks(ids, IdBatches.DEFAULT_MAX_CHUNK_SIZE)) {
+            List<Member> members = readOnlyHints.apply(queryFactory
+                    .selectFrom(member)
+                    .where(member.id.in(chunk)))
+                    .fetch();
+            for (Member m : members) {
+                found.put(m.getId(), m);
+            }
+        }
+        return IdBatches.inInputOrder(ids, found);
+    }
+
+    @Transactional(readOnly = true)
     public List<Member> findAll(){
-        return em.createQuery("select m from Member m", Member.class).getResultList();
+        return readOnlyHints.apply(em.createQuery("select m from Member m", Member.class)).getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydls(){
-        return  queryFactory
-                .selectFrom(member)
-                .fetch();
+        return queryMetrics.list("findAll_Querydls", MemberSearchShape.describe(0), () -> readOnlyHints.apply(queryFactory
+                .selectFrom(member))
+                .fetch());
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll(String username){
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+        return readOnlyHints.apply(em.createQuery("select m from Member m where m.username = :username", Member.class))
                 .setParameter("username", username)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username){
-        return queryFactory
+        return queryMetrics.list("findByUsername_Querydsl", MemberSearchShape.describe(MemberSearchShape.USERNAME), () -> readOnlyHints.apply(queryFactory
                 .selectFrom(member)
-                .where(member.username.eq(username))
-                .fetch();
+                .where(member.username.eq(username)))
+                .fetch());
     }
 
+    @Transactional(readOnly = true)
     public List<MemberFormDto> searchByBuilder(MemberSearchCondition condition){
 
         BooleanBuilder builder = new BooleanBuilder();
@@ -77,10 +155,11 @@ public class MemberJpaRepository {
             builder.and(member.age.goe(condition.getAgeGoe()));
         }
         if(condition.getAgeLoe() != null) {
-            builder.and(member.age.goe(condition.getAgeLoe()));
+            builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return queryFactory
+        // shape 태그가 실제 SQL 의 조건과 같도록 builder 를 where 에 넣는다.
+        return queryMetrics.list("searchByBuilder", condition, () -> readOnlyHints.apply(queryFactory
                 .select(new QMemberFormDto(
                         member.id,
                         member.username,
@@ -89,44 +168,17 @@ public class MemberJpaRepository {
                         team.name))
                 .from(member)
                 .leftJoin(member.team, team)
-                .fetch();
+                .where(builder))
+                .fetch());
     }
 
+    @Transactional(readOnly = true)
     public List<MemberFormDto> search(MemberSearchCondition condition){
-
-
-        return queryFactory
-                .select(new QMemberFormDto(
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
-
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+        return searchCache.get(MemberSearchKey.of("search", condition),
+                () -> Collections.unmodifiableList(fetchSearch(condition)));
     }
 
-    private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? team.name.eq(username) : null;
+    private List<MemberFormDto> fetchSearch(MemberSearchCondition condition){
+        return queryMetrics.list("search", condition, () -> queryRegistry.create(condition).fetch());
     }
 }
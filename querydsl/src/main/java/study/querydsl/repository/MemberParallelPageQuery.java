@@ -0,0 +1,156 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 페이징 검색의 content 쿼리와 count 쿼리를 각각 다른 스레드, 다른 커넥션의 읽기 전용 트랜잭션에서 동시에 실행한다.
+ * 둘 중 하나가 실패하거나 시간을 넘기면 나머지 쿼리도 취소한다.
+ */
+@Slf4j
+@Component
+public class MemberParallelPageQuery {
+
+    private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+    private final EntityManager em;
+    private final MemberSearchQueryRegistry queryRegistry;
+    private final ThreadPoolTaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration timeout;
+
+    public MemberParallelPageQuery(EntityManager em,
+                                   MemberSearchQueryRegistry queryRegistry,
+                                   @Qualifier("memberSearchExecutor") ThreadPoolTaskExecutor executor,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${member.search.parallel.timeout:3s}") Duration timeout) {
+        this.em = em;
+        this.queryRegistry = queryRegistry;
+        this.executor = executor;
+        this.timeout = timeout;
+        // 호출한 쪽의 트랜잭션과 상관없이 작업 스레드마다 새 읽기 전용 트랜잭션 (= 새 커넥션) 을 연다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout((int) Math.max(1, timeout.toSeconds()));
+    }
+
+    public Page<MemberFormDto> fetch(MemberSearchCondition condition, Pageable pageable) {
+        ExecutorCompletionService<Object> completionService = new ExecutorCompletionService<>(executor.getThreadPoolExecutor());
+
+        RunningQuery<List<MemberFormDto>> content = new RunningQuery<>();
+        RunningQuery<Long> count = new RunningQuery<>();
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        // 두 번째 submit 이 거절 (대기열이 가득 참) 되어도 먼저 시작한 쿼리를 취소하도록 submit 도 try 안에서 한다.
+        try {
+            submit(completionService, content, query -> query
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .fetch(), condition);
+            submit(completionService, count, MemberSearchQuery::fetchCount, condition);
+
+            for (int i = 0; i < 2; i++) {
+                Future<Object> done = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new QueryTimeoutException("회원 검색이 " + timeout.toMillis() + "ms 안에 끝나지 않았습니다.");
+                }
+                done.get();
+            }
+        } catch (ExecutionException e) {
+            cancel(content, count);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            cancel(content, count);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("회원 검색 대기 중 인터럽트되었습니다.", e);
+        } catch (RuntimeException e) {
+            cancel(content, count);
+            throw e;
+        }
+
+        return PageableExecutionUtils.getPage(content.result(), pageable, count::result);
+    }
+
+    private <T> void submit(ExecutorCompletionService<Object> completionService,
+                            RunningQuery<T> running,
+                            Function<MemberSearchQuery, T> body,
+                            MemberSearchCondition condition) {
+        running.future = completionService.submit(() -> transactionTemplate.execute(status -> {
+            running.session.set(em.unwrap(Session.class));
+            try {
+                MemberSearchQuery query = queryRegistry.create(condition)
+                        .hint(QUERY_TIMEOUT_HINT, Math.toIntExact(timeout.toMillis()));
+                return body.apply(query);
+            } finally {
+                running.session.set(null);
+            }
+        }));
+    }
+
+    private void cancel(RunningQuery<?>... queries) {
+        for (RunningQuery<?> query : queries) {
+            query.cancel();
+        }
+    }
+
+    private static class RunningQuery<T> {
+
+        private final AtomicReference<Session> session = new AtomicReference<>();
+        // submit 전이나 submit 이 거절되었으면 null
+        private Future<Object> future;
+
+        @SuppressWarnings("unchecked")
+        T result() {
+            try {
+                return (T) future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                // fetch 에서 두 쿼리가 모두 끝난 것을 확인한 뒤에만 호출된다.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void cancel() {
+            if (future == null || future.isDone()) {
+                return;
+            }
+            // 스레드 인터럽트만으로는 DB 에서 실행 중인 쿼리가 멈추지 않으므로 Statement 도 취소한다.
+            Session running = session.get();
+            if (running != null) {
+                try {
+                    running.cancelQuery();
+                } catch (RuntimeException e) {
+                    log.debug("[parallel-page] cancelQuery failed", e);
+                }
+            }
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 리포지토리 쿼리마다 실행 시간(member.query)과 반환 행 수(member.query.rows)를 남긴다.
+ * shape 태그로 어떤 검색 조건 조합이 느린지 /actuator/metrics/member.query?tag=shape:... 로 볼 수 있다.
+ */
+@Component
+public class MemberQueryMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+
+    public MemberQueryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> List<T> list(String method, MemberSearchCondition condition, Supplier<List<T>> query) {
+        return record(method, shape(condition), query, List::size);
+    }
+
+    public <T> List<T> list(String method, String shape, Supplier<List<T>> query) {
+        return record(method, shape, query, List::size);
+    }
+
+    public <P extends Page<?>> P page(String method, MemberSearchCondition condition, Supplier<P> query) {
+        return record(method, shape(condition), query, Page::getNumberOfElements);
+    }
+
+    private <T> T record(String method, String shape, Supplier<T> query, ToLongFunction<T> rows) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = query.get();
+            outcome = "success";
+            DistributionSummary.builder("member.query.rows")
+                    .tag("method", method)
+                    .tag("shape", shape)
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry)
+                    .record(rows.applyAsLong(result));
+            return result;
+        } finally {
+            Timer.builder("member.query")
+                    .tag("method", method)
+                    .tag("shape", shape)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String shape(MemberSearchCondition condition) {
+        return MemberSearchShape.describe(MemberSearchShape.of(condition));
+    }
+}
@@ -0,0 +1,65 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.AbstractJPAQuery;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.TypedQuery;
+
+/**
+ * 읽기 전용 조회에 Hibernate 힌트를 붙인다.
+ * <ul>
+ *     <li>readOnly: 조회한 엔티티의 스냅샷을 만들지 않아 dirty checking 과 그 메모리가 없어진다.</li>
+ *     <li>fetchSize: JDBC 드라이버가 한 번에 가져오는 행 수</li>
+ *     <li>flushMode MANUAL: 쿼리 전에 영속성 컨텍스트를 flush 하지 않는다.</li>
+ * </ul>
+ * 쓰기 트랜잭션에 참여한 경우에는 호출한 쪽이 조회한 엔티티를 수정하거나 아직 flush 되지 않은 변경을 읽어야 할 수 있으므로
+ * 아무 힌트도 붙이지 않는다.
+ */
+@Component
+public class MemberReadOnlyHints {
+
+    private final int fetchSize;
+
+    public MemberReadOnlyHints(@Value("${member.read-only.fetch-size:100}") int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public boolean isReadOnlyContext() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    public <T, Q extends AbstractJPAQuery<T, Q>> Q apply(Q query) {
+        if (!isReadOnlyContext()) {
+            return query;
+        }
+        return query
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+    }
+
+    public <T> TypedQuery<T> apply(TypedQuery<T> query) {
+        if (!isReadOnlyContext()) {
+            return query;
+        }
+        return query
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+    }
+
+    public MemberSearchQuery apply(MemberSearchQuery query) {
+        if (!isReadOnlyContext()) {
+            return query;
+        }
+        return query
+                .hint(QueryHints.HINT_READONLY, true)
+                .hint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .hint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+    }
+}
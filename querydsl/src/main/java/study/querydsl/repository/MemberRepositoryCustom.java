@@ -2,10 +2,15 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.EstimatedPage;
 import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberStatsDto;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<MemberFormDto> search(MemberSearchCondition condition);
@@ -13,5 +18,17 @@ public interface MemberRepositoryCustom {
 
     Page<MemberFormDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
 
+    EstimatedPage<MemberFormDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable);
+
+    Page<MemberFormDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+
+    MemberStatsDto searchStats(MemberSearchCondition condition);
+
+    List<MemberFormDto> findAllByIds(Collection<Long> ids);
+
+    Stream<MemberFormDto> searchStream(MemberSearchCondition condition);
+
+    MemberKeysetPage searchByCursor(MemberSearchCondition condition, MemberCursor after, int size, MemberCursor.SortKey sortKey);
+
 
 }
@@ -1,17 +1,34 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.InvalidSearchParameterException;
 import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberStatsDto;
 import study.querydsl.dto.QMemberFormDto;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
@@ -19,15 +36,220 @@ import static study.querydsl.entity.QTeam.team;
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final JPAQueryFactory  queryFactory;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchQueryRegistry queryRegistry;
+    private final MemberQueryMetrics queryMetrics;
+    private final MemberParallelPageQuery parallelPageQuery;
+    private final int exportFetchSize;
+    private final long countCap;
+    private final MemberReadOnlyHints readOnlyHints;
+    private final MemberAgeIndex ageIndex;
+    private final MemberColumnarSnapshot columnarSnapshot;
 
-    public MemberRepositoryImpl(EntityManager em){
+    public MemberRepositoryImpl(EntityManager em,
+                                MemberSearchCache searchCache,
+                                MemberSearchQueryRegistry queryRegistry,
+                                MemberQueryMetrics queryMetrics,
+                                MemberParallelPageQuery parallelPageQuery,
+                                @Value("${member.export.fetch-size:500}") int exportFetchSize,
+                                @Value("${member.search.count-cap:10000}") long countCap,
+                                MemberReadOnlyHints readOnlyHints,
+                                MemberAgeIndex ageIndex,
+                                MemberColumnarSnapshot columnarSnapshot){
         this.queryFactory = new JPAQueryFactory(em);
+        this.searchCache = searchCache;
+        this.queryRegistry = queryRegistry;
+        this.queryMetrics = queryMetrics;
+        this.parallelPageQuery = parallelPageQuery;
+        this.exportFetchSize = exportFetchSize;
+        this.countCap = countCap;
+        this.readOnlyHints = readOnlyHints;
+        this.ageIndex = ageIndex;
+        this.columnarSnapshot = columnarSnapshot;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<MemberFormDto> search(MemberSearchCondition condition){
+        return searchCache.get(MemberSearchKey.of("search", condition),
+                () -> Collections.unmodifiableList(fetchSearch(condition)));
+    }
+
+    private List<MemberFormDto> fetchSearch(MemberSearchCondition condition){
+        return queryMetrics.list("search", condition, () -> queryRegistry.create(condition).fetch());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberFormDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchCache.get(MemberSearchKey.of("searchPageSimple", condition, pageable),
+                () -> queryMetrics.page("searchPageSimple", condition, () -> fetchPageSimple(condition, pageable)));
+    }
+
+    private Page<MemberFormDto> fetchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberFormDto> content = queryRegistry.create(condition)
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize()) // 반환 사이즈
+                .fetch();
+
+        return new PageImpl<>(content, pageable, content.size());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberFormDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return queryMetrics.page("searchPageComplex", condition, () -> fetchPageComplex(condition, pageable));
+    }
+
+    private Page<MemberFormDto> fetchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchQuery query = queryRegistry.create(condition);
+        List<MemberFormDto> content = query
+                        .offset(pageable.getOffset())
+                        .limit(pageable.getPageSize()) // 반환 사이즈
+                        .fetch();
+
+        //fetch result 및 fetchCount 가 deprecated 가 되어서 사용이 불가능하다.
+        // count 쿼리를 따로 만들고, 첫 페이지가 덜 찼거나 마지막 페이지라면 count 쿼리를 생략한다.
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(condition, query));
+    }
+
+    // 나이 조건만 있는 검색은 메모리 나이 인덱스가 준비되어 있으면 db 에 count 쿼리를 보내지 않는다.
+    // 쓰기 트랜잭션 안에서는 아직 커밋되지 않은 변경이 인덱스에 없으므로 db 에서 센다.
+    private long count(MemberSearchCondition condition, MemberSearchQuery query) {
+        if (MemberAgeIndex.supports(MemberSearchShape.of(condition)) && readOnlyHints.isReadOnlyContext()) {
+            OptionalLong indexed = ageIndex.count(condition.getAgeGoe(), condition.getAgeLoe());
+            if (indexed.isPresent()) {
+                return indexed.getAsLong();
+            }
+        }
+        return query.fetchCount();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public EstimatedPage<MemberFormDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        return queryMetrics.page("searchPageEstimated", condition, () -> fetchPageEstimated(condition, pageable));
+    }
+
+    // countCap 번째 (요청한 페이지가 더 뒤라면 그 페이지 끝) 행이 있는지만 먼저 확인하고, 없을 때만 count(*) 로 정확히 센다.
+    // 있으면 total 은 countCap 이고 totalApproximate 가 true 가 된다. (실제 건수는 그보다 많다)
+    private EstimatedPage<MemberFormDto> fetchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchQuery query = queryRegistry.create(condition);
+        if (pageable.isUnpaged()) {
+            List<MemberFormDto> content = query.fetch();
+            return new EstimatedPage<>(content, pageable, content.size(), false);
+        }
+
+        List<MemberFormDto> content = query
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        // PageableExecutionUtils 와 같은 규칙: 첫 페이지가 덜 찼거나 마지막 페이지라면 count 가 필요 없다.
+        if (content.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !content.isEmpty())) {
+            return new EstimatedPage<>(content, pageable, pageable.getOffset() + content.size(), false);
+        }
+
+        long cap = Math.max(countCap, pageable.getOffset() + pageable.getPageSize());
+        if (query.hasMoreThan(cap)) {
+            return new EstimatedPage<>(content, pageable, cap, true);
+        }
+        return new EstimatedPage<>(content, pageable, query.fetchCount(), false);
+    }
+
+    // content / count 쿼리를 각자의 커넥션에서 동시에 실행한다. 호출한 쪽의 트랜잭션에 참여하지 않으므로
+    // 아직 커밋되지 않은 변경은 보이지 않는다.
+    @Override
+    public Page<MemberFormDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        return queryMetrics.page("searchPageParallel", condition, () -> parallelPageQuery.fetch(condition, pageable));
+    }
+
+    // 열 스냅샷이 준비되어 있으면 행마다 dto 를 만들지 않고 메모리에서 병렬로 집계한다.
+    // 스냅샷은 최대 member.columnar.refresh-interval 만큼 늦을 수 있어서 쓰기 트랜잭션 안에서는 db 에서 집계한다.
+    @Override
+    @Transactional(readOnly = true)
+    public MemberStatsDto searchStats(MemberSearchCondition condition) {
+        MemberColumns columns = columnarSnapshot.current();
+        if (columns != null && readOnlyHints.isReadOnlyContext()) {
+            return columns.stats(condition);
+        }
+        return fetchStats(condition);
+    }
+
+    private MemberStatsDto fetchStats(MemberSearchCondition condition) {
+        Tuple summary = queryFactory
+                .select(member.count(), member.age.avg(), member.age.min(), member.age.max())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        usernameStartsWith(condition.getUsernameStartsWith()),
+                        usernameContains(condition.getUsernameContains()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .fetchOne();
 
+        List<Tuple> perTeam = queryFactory
+                .select(team.name, member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        usernameStartsWith(condition.getUsernameStartsWith()),
+                        usernameContains(condition.getUsernameContains()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .groupBy(team.name)
+                .fetch();
+
+        // db 정렬 규칙 (collation) 과 상관없이 열 스냅샷 집계 (MemberColumns) 와 같은 팀 이름 순이 되도록 TreeMap 에 담는다.
+        Map<String, Long> countByTeam = new TreeMap<>();
+        long noTeam = 0;
+        for (Tuple row : perTeam) {
+            String teamName = row.get(team.name);
+            Long count = row.get(member.count());
+            if (teamName == null) {
+                noTeam = count;
+            } else {
+                countByTeam.put(teamName, count);
+            }
+        }
+        long count = summary.get(member.count());
+        return new MemberStatsDto(count,
+                summary.get(member.age.avg()),
+                summary.get(member.age.min()),
+                summary.get(member.age.max()),
+                countByTeam,
+                noTeam);
+    }
+
+    // id 순서대로 돌려준다. IN 목록은 청크로 나누고 Hibernate 가 2 의 거듭제곱 크기로 채운다. ({@link IdBatches})
+    @Override
+    @Transactional(readOnly = true)
+    public List<MemberFormDto> findAllByIds(Collection<Long> ids) {
+        Map<Long, MemberFormDto> found = new HashMap<>(ids.size() * 2);
+        for (List<Long> chunk : IdBatches.chunks(ids, IdBatches.DEFAULT_MAX_CHUNK_SIZE)) {
+            List<MemberFormDto> rows = readOnlyHints.apply(queryFactory
+                    .select(MemberSearchQueryRegistry.PROJECTION)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.in(chunk)))
+                    .fetch();
+            for (MemberFormDto row : rows) {
+                found.put(row.getMemberId(), row);
+            }
+        }
+        return IdBatches.inInputOrder(ids, found);
+    }
 
+    // 결과를 한 번에 List 로 올리지 않고 커서로 fetch-size 만큼씩 읽는다.
+    // 반환된 Stream 은 트랜잭션 안에서 소비하고 반드시 close 해야 한다.
+    @Override
+    public Stream<MemberFormDto> searchStream(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberFormDto(
                         member.id,
@@ -39,66 +261,73 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                 .leftJoin(member.team, team)
                 .where(
                         usernameEq(condition.getUsername()),
+                        usernameStartsWith(condition.getUsernameStartsWith()),
+                        usernameContains(condition.getUsernameContains()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
-
+                .setHint(QueryHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .stream();
     }
 
     @Override
-    public Page<MemberFormDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public MemberKeysetPage searchByCursor(MemberSearchCondition condition, MemberCursor after, int size, MemberCursor.SortKey sortKey) {
+        if (after != null && after.getSortKey() != sortKey) {
+            throw new InvalidSearchParameterException("커서의 정렬 키와 요청한 정렬 키가 다릅니다.");
+        }
 
-        List<MemberFormDto> content =
-                         queryFactory
-                        .select(new QMemberFormDto(
-                                member.id,
-                                member.username,
-                                member.age,
-                                team.id,
-                                team.name))
-                        .from(member)
-                        .leftJoin(member.team, team)
-                        .where(
-                                usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
-                        .offset(pageable.getOffset()) //
-                        .limit(pageable.getPageSize()) // 반환 사이즈
-                        .fetch();
+        // offset 대신 마지막 행의 (정렬 키, id) 이후부터 찾기 때문에 깊은 페이지에서도 비용이 일정하다.
+        List<MemberFormDto> content = readOnlyHints.apply(queryFactory
+                .select(new QMemberFormDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        usernameStartsWith(condition.getUsernameStartsWith()),
+                        usernameContains(condition.getUsernameContains()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()),
+                        seekAfter(after)
+                )
+                .orderBy(keysetOrder(sortKey))
+                .limit(size + 1)) // 다음 페이지 존재 여부 확인용으로 하나 더 가져온다.
+                .fetch();
 
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        String nextCursor = hasNext ? MemberCursor.of(sortKey, content.get(content.size() - 1)).encode() : null;
 
-        return new PageImpl<>(content, pageable, content.size());
+        return new MemberKeysetPage(content, size, hasNext, nextCursor);
     }
 
-    @Override
-    public Page<MemberFormDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-
-        List<MemberFormDto> content = queryFactory
-                        .select(new QMemberFormDto(
-                                member.id,
-                                member.username,
-                                member.age,
-                                team.id,
-                                team.name))
-                        .from(member)
-                        .leftJoin(member.team, team)
-                        .where(
-                                usernameEq(condition.getUsername()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
-                        .offset(pageable.getOffset()) //
-                        .limit(pageable.getPageSize()) // 반환 사이즈
-                        .fetch();
-
-        //fetch result 및 fetchCount 가 deprecated 가 되어서 사용이 불가능하다.
+    private OrderSpecifier<?>[] keysetOrder(MemberCursor.SortKey sortKey) {
+        if (sortKey == MemberCursor.SortKey.AGE) {
+            return new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+        }
+        return new OrderSpecifier<?>[]{member.id.asc()};
+    }
 
-        return new PageImpl<>(content, pageable, content.size());
+    private BooleanExpression seekAfter(MemberCursor after) {
+        if (after == null) {
+            return null;
+        }
+        if (after.getSortKey() == MemberCursor.SortKey.AGE) {
+            int lastAge = (int) after.getLastValue();
+            return member.age.gt(lastAge)
+                    .or(member.age.eq(lastAge).and(member.id.gt(after.getLastId())));
+        }
+        return member.id.gt(after.getLastId());
     }
 
     private BooleanExpression ageLoe(Integer ageLoe) {
@@ -114,6 +343,14 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
     }
 
     private BooleanExpression usernameEq(String username) {
-        return StringUtils.hasText(username) ? team.name.eq(username) : null;
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression usernameStartsWith(String prefix) {
+        return StringUtils.hasText(prefix) ? member.username.startsWith(prefix) : null;
+    }
+
+    private BooleanExpression usernameContains(String fragment) {
+        return StringUtils.hasText(fragment) ? member.username.contains(fragment) : null;
     }
 }
@@ -0,0 +1,126 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 자주 반복되는 검색 조건의 결과를 잠깐 들고 있는 LRU/TTL 캐시.
+ * 회원 데이터가 바뀌면 ({@link MemberChangedEvent}) 전체를 비운다.
+ * 트랜잭션 안의 변경은 행마다 비우지 않고 트랜잭션마다 커밋 직전에 한 번, 커밋 후에 한 번 비운다.
+ * <p>
+ * 비울 때마다 세대 (generation) 를 올리고 키에 세대를 넣는다. 비우기 전에 시작한 조회는 이전 세대의 키로 저장되므로
+ * 커밋 전 데이터를 읽은 결과가 비운 뒤의 캐시에 다시 들어가지 않는다.
+ * {@link MemberDataVersion#read} 안의 조회는 읽은 데이터 버전도 키에 넣는다. 다른 인스턴스의 변경은 이벤트로 오지 않지만
+ * 새 버전을 읽은 요청은 이전 버전에서 채운 결과를 쓰지 않는다.
+ */
+@Slf4j
+@Component
+public class MemberSearchCache {
+
+    private final boolean enabled;
+    private final Cache<GenerationKey, Object> cache;
+    private final AtomicLong generation = new AtomicLong();
+    // 이 트랜잭션에서 이미 비우기를 예약했는지
+    private final Object invalidationScheduled = new Object();
+
+    public MemberSearchCache(@Value("${member.search-cache.enabled:true}") boolean enabled,
+                             @Value("${member.search-cache.maximum-size:1000}") long maximumSize,
+                             @Value("${member.search-cache.ttl:30s}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size 로 /actuator/metrics 에 노출된다.
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "memberSearch");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(MemberSearchKey key, Supplier<T> loader) {
+        if (!enabled || !isCacheableContext()) {
+            return loader.get();
+        }
+        return (T) cache.get(new GenerationKey(generation.get(), MemberDataVersion.currentReadEtag(), key), k -> loader.get());
+    }
+
+    // 쓰기 트랜잭션 안에서 읽은 결과에는 아직 커밋되지 않은 데이터가 섞여 있을 수 있어서 캐시를 거치지 않는다.
+    private boolean isCacheableContext() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateAll();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(invalidationScheduled)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(invalidationScheduled, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                invalidateAll();
+            }
+
+            // 커밋 직전 ~ 커밋 사이에 다른 요청이 이전 데이터로 다시 채웠을 수 있어서 커밋 후에 한 번 더 비운다.
+            @Override
+            public void afterCommit() {
+                log.debug("member search cache invalidated after commit, first change {}", event);
+                invalidateAll();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(invalidationScheduled);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    // 지금까지 비운 횟수
+    long generation() {
+        return generation.get();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // 세대나 데이터 버전이 다르면 같은 검색 조건이라도 다른 키다.
+    @EqualsAndHashCode
+    private static final class GenerationKey {
+        private final long generation;
+        // MemberDataVersion.read 밖이면 null
+        private final String dataVersion;
+        private final MemberSearchKey key;
+
+        GenerationKey(long generation, String dataVersion, MemberSearchKey key) {
+            this.generation = generation;
+            this.dataVersion = dataVersion;
+            this.key = key;
+        }
+    }
+}
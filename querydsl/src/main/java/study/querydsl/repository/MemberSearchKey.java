@@ -0,0 +1,52 @@
+package study.querydsl.repository;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 검색 조건 + 페이지 정보를 캐시 키로 쓰기 위한 불변 값.
+ * 검색 쿼리에서 무시되는 빈 문자열은 null 로 맞춰서 같은 쿼리가 같은 키를 갖도록 한다.
+ */
+@EqualsAndHashCode
+@ToString
+public final class MemberSearchKey {
+
+    private final String query;
+    private final String username;
+    private final String usernameStartsWith;
+    private final String usernameContains;
+    private final String teamName;
+    private final Integer ageGoe;
+    private final Integer ageLoe;
+    private final Integer page;
+    private final Integer size;
+    private final String sort;
+
+    private MemberSearchKey(String query, MemberSearchCondition condition, Pageable pageable) {
+        this.query = query;
+        this.username = normalize(condition.getUsername());
+        this.usernameStartsWith = normalize(condition.getUsernameStartsWith());
+        this.usernameContains = normalize(condition.getUsernameContains());
+        this.teamName = normalize(condition.getTeamName());
+        this.ageGoe = condition.getAgeGoe();
+        this.ageLoe = condition.getAgeLoe();
+        this.page = pageable != null ? pageable.getPageNumber() : null;
+        this.size = pageable != null ? pageable.getPageSize() : null;
+        this.sort = pageable != null ? pageable.getSort().toString() : null;
+    }
+
+    public static MemberSearchKey of(String query, MemberSearchCondition condition) {
+        return new MemberSearchKey(query, condition, null);
+    }
+
+    public static MemberSearchKey of(String query, MemberSearchCondition condition, Pageable pageable) {
+        return new MemberSearchKey(query, condition, pageable);
+    }
+
+    private static String normalize(String value) {
+        return StringUtils.hasText(value) ? value : null;
+    }
+}
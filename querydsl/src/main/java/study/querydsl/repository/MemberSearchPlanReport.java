@@ -0,0 +1,129 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.ParamExpression;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 검색 shape 의 SQL 에 대해 EXPLAIN 을 실행하고, 인덱스를 타지 못하고 풀 스캔하는 shape 를 알려준다.
+ * member.plan-report.enabled=true 일 때 애플리케이션 시작 후 한 번 로그로 남긴다.
+ */
+@Slf4j
+@Component
+public class MemberSearchPlanReport {
+
+    private final MemberSearchQueryRegistry queryRegistry;
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    // db 별로 풀 스캔을 나타내는 문구 (H2: tableScan, PostgreSQL: Seq Scan)
+    private final List<String> fullScanMarkers;
+
+    public MemberSearchPlanReport(MemberSearchQueryRegistry queryRegistry,
+                                  EntityManagerFactory emf,
+                                  JdbcTemplate jdbcTemplate,
+                                  @Value("${member.plan-report.enabled:false}") boolean enabled,
+                                  @Value("${member.plan-report.full-scan-markers:tableScan,Seq Scan}") List<String> fullScanMarkers) {
+        this.queryRegistry = queryRegistry;
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.fullScanMarkers = fullScanMarkers;
+    }
+
+    @Getter
+    public static class ShapePlan {
+        private final String shape;
+        private final String sql;
+        private final String plan;
+        private final boolean fullScan;
+
+        ShapePlan(String shape, String sql, String plan, boolean fullScan) {
+            this.shape = shape;
+            this.sql = sql;
+            this.plan = plan;
+            this.fullScan = fullScan;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        for (ShapePlan plan : explainAll()) {
+            if (plan.isFullScan() && plan.getShape().equals(MemberSearchShape.describe(0))) {
+                // 조건이 없는 검색은 원래 전체를 읽는다.
+                log.info("[plan-report] {} -> full scan (no predicate)", plan.getShape());
+            } else if (plan.isFullScan() && plan.getShape().equals(MemberSearchShape.describe(MemberSearchShape.USERNAME_CONTAINS))) {
+                // like '%x%' 는 b-tree 인덱스를 쓸 수 없다. 트라이그램 인덱스가 후보를 주면 +idIn shape 로 실행된다.
+                log.info("[plan-report] {} -> full scan (trigram index fallback)", plan.getShape());
+            } else if (plan.isFullScan()) {
+                log.warn("[plan-report] {} -> FULL SCAN\n{}", plan.getShape(), plan.getPlan());
+            } else {
+                log.info("[plan-report] {} -> index", plan.getShape());
+                log.debug("[plan-report] {}\n{}", plan.getShape(), plan.getPlan());
+            }
+        }
+    }
+
+    public List<ShapePlan> explainAll() {
+        HibernateSqlTranslator translator = new HibernateSqlTranslator(emf.unwrap(SessionFactoryImplementor.class));
+        List<ShapePlan> plans = new ArrayList<>(MemberSearchShape.COUNT);
+        for (int shape = 0; shape < MemberSearchShape.COUNT; shape++) {
+            MemberSearchQueryRegistry.CompiledSearch compiled = queryRegistry.compiled(shape);
+            String sql = translator.toSql(compiled.getContentJpql());
+            String plan = explain(sql, compiled.getContentParameters());
+            plans.add(new ShapePlan(MemberSearchShape.describe(shape), sql, plan, isFullScan(plan)));
+        }
+        return plans;
+    }
+
+    private String explain(String sql, List<Object> parameters) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("explain " + sql, parameters.stream()
+                .map(this::sampleValue)
+                .toArray());
+        StringBuilder plan = new StringBuilder();
+        for (Map<String, Object> row : rows) {
+            plan.append(row.values()).append('\n');
+        }
+        return plan.toString();
+    }
+
+    // 실행 계획만 보면 되므로 타입만 맞는 아무 값이나 넣는다.
+    // like 파라미터는 실제와 같은 모양의 패턴을 넣어야 한다. ('x' 만 넣으면 db 가 = 로 바꿔 인덱스를 탄다)
+    private Object sampleValue(Object parameter) {
+        if (parameter == MemberSearchQueryRegistry.USERNAME_STARTS_WITH) {
+            return "x%";
+        }
+        if (parameter == MemberSearchQueryRegistry.USERNAME_CONTAINS) {
+            return "%x%";
+        }
+        Class<?> type = parameter instanceof ParamExpression
+                ? ((ParamExpression<?>) parameter).getType()
+                : parameter.getClass();
+        if (Number.class.isAssignableFrom(type)) {
+            return 0;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return 0L;
+        }
+        return "x";
+    }
+
+    private boolean isFullScan(String plan) {
+        return fullScanMarkers.stream().anyMatch(plan::contains);
+    }
+}
@@ -0,0 +1,139 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.impl.JPAUtil;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MemberSearchQueryRegistry} 에 미리 직렬화된 JPQL 에 이번 요청의 파라미터를 묶은 쿼리.
+ */
+public class MemberSearchQuery {
+
+    private final EntityManager em;
+    private final MemberSearchQueryRegistry.CompiledSearch compiled;
+    private final Map<ParamExpression<?>, Object> params = new HashMap<>();
+    private final Map<String, Object> hints = new LinkedHashMap<>();
+    private Long offset;
+    private Integer limit;
+    // 트라이그램 인덱스의 후보가 하나도 없으면 db 에 묻지 않는다.
+    private final boolean noMatch;
+
+    MemberSearchQuery(EntityManager em, MemberSearchQueryRegistry.CompiledSearch compiled, MemberSearchCondition condition,
+                      long[] candidateIds) {
+        this.em = em;
+        this.compiled = compiled;
+        this.noMatch = candidateIds != null && candidateIds.length == 0;
+        int shape = compiled.getShape();
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME)) {
+            params.put(MemberSearchQueryRegistry.USERNAME, condition.getUsername());
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            params.put(MemberSearchQueryRegistry.TEAM_NAME, condition.getTeamName());
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE)) {
+            params.put(MemberSearchQueryRegistry.AGE_GOE, condition.getAgeGoe());
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE)) {
+            params.put(MemberSearchQueryRegistry.AGE_LOE, condition.getAgeLoe());
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_STARTS_WITH)) {
+            params.put(MemberSearchQueryRegistry.USERNAME_STARTS_WITH, escapeLike(condition.getUsernameStartsWith()) + "%");
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_CONTAINS)) {
+            params.put(MemberSearchQueryRegistry.USERNAME_CONTAINS, "%" + escapeLike(condition.getUsernameContains()) + "%");
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.ID_IN)) {
+            List<Long> ids = new ArrayList<>(candidateIds.length);
+            for (long id : candidateIds) {
+                ids.add(id);
+            }
+            params.put(MemberSearchQueryRegistry.IDS, ids);
+        }
+    }
+
+    // 검색어의 % / _ 가 와일드카드로 해석되지 않도록 한다.
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == MemberSearchQueryRegistry.LIKE_ESCAPE) {
+                escaped.append(MemberSearchQueryRegistry.LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    public MemberSearchQuery offset(long offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public MemberSearchQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public MemberSearchQuery hint(String name, Object value) {
+        hints.put(name, value);
+        return this;
+    }
+
+    public List<MemberFormDto> fetch() {
+        if (noMatch) {
+            return Collections.emptyList();
+        }
+        Query query = prepare(compiled.getContentJpql(), compiled.contentConstants);
+        if (offset != null) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+
+        List<?> rows = query.getResultList();
+        List<MemberFormDto> result = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            result.add(MemberSearchQueryRegistry.CompiledSearch.toDto((Object[]) row));
+        }
+        return result;
+    }
+
+    public long fetchCount() {
+        if (noMatch) {
+            return 0;
+        }
+        Query query = prepare(compiled.getCountJpql(), compiled.countConstants);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * 결과가 limit 건보다 많은지. limit 번째 (0 부터) id 하나만 읽으므로 limit 건을 애플리케이션으로 가져오지 않는다.
+     */
+    public boolean hasMoreThan(long limit) {
+        if (noMatch) {
+            return false;
+        }
+        Query query = prepare(compiled.getIdJpql(), compiled.idConstants);
+        query.setFirstResult(Math.toIntExact(limit));
+        query.setMaxResults(1);
+        return !query.getResultList().isEmpty();
+    }
+
+    private Query prepare(String jpql, List<Object> constants) {
+        Query query = em.createQuery(jpql);
+        JPAUtil.setConstants(query, constants, params);
+        hints.forEach(query::setHint);
+        return query;
+    }
+}
@@ -0,0 +1,200 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.QMemberFormDto;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건의 shape ({@link MemberSearchShape}) 별로 JPQL 을 한 번만 직렬화해 두고,
+ * 요청마다 파라미터만 바인딩해서 실행한다.
+ * 요청 경로에서는 JPAQuery / BooleanExpression 생성과 JPQL 직렬화가 일어나지 않는다.
+ */
+@Component
+public class MemberSearchQueryRegistry {
+
+    static final Param<String> USERNAME = new Param<>(String.class, "username");
+    static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+    // like 패턴으로 바인딩된다. (MemberSearchQuery 가 % / _ 를 이스케이프)
+    static final Param<String> USERNAME_STARTS_WITH = new Param<>(String.class, "usernameStartsWith");
+    static final Param<String> USERNAME_CONTAINS = new Param<>(String.class, "usernameContains");
+    @SuppressWarnings("rawtypes")
+    static final Param<Collection> IDS = new Param<>(Collection.class, "ids");
+    static final char LIKE_ESCAPE = '!';
+
+    static final QMemberFormDto PROJECTION = new QMemberFormDto(
+            member.id,
+            member.username,
+            member.age,
+            team.id,
+            team.name);
+
+    private final EntityManager em;
+    private final MemberReadOnlyHints readOnlyHints;
+    private final MemberUsernameTrigramIndex usernameIndex;
+    private final CompiledSearch[] compiled = new CompiledSearch[MemberSearchShape.COUNT];
+
+    public MemberSearchQueryRegistry(EntityManager em, MemberReadOnlyHints readOnlyHints,
+                                     MemberUsernameTrigramIndex usernameIndex) {
+        this.em = em;
+        this.readOnlyHints = readOnlyHints;
+        this.usernameIndex = usernameIndex;
+    }
+
+    // 읽기 전용 트랜잭션이나 트랜잭션 밖에서 만들면 읽기 전용 힌트가 붙는다.
+    // usernameContains 는 트라이그램 인덱스가 후보 id 를 주면 member_id in (...) 으로 좁힌 뒤 like 로 확인한다.
+    // 쓰기 트랜잭션 안에서는 아직 커밋되지 않은 회원이 인덱스에 없으므로 인덱스를 쓰지 않는다.
+    public MemberSearchQuery create(MemberSearchCondition condition) {
+        int shape = MemberSearchShape.of(condition);
+        long[] candidateIds = null;
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_CONTAINS) && readOnlyHints.isReadOnlyContext()) {
+            candidateIds = usernameIndex.candidates(condition.getUsernameContains());
+        }
+        if (candidateIds != null) {
+            shape |= MemberSearchShape.ID_IN;
+        }
+        return readOnlyHints.apply(new MemberSearchQuery(em, compiled(shape), condition, candidateIds));
+    }
+
+    public CompiledSearch compiled(int shape) {
+        CompiledSearch search = compiled[shape];
+        if (search == null) {
+            // 같은 shape 를 동시에 두 번 만들어도 결과가 같으므로 락 없이 덮어쓴다.
+            search = compile(shape);
+            compiled[shape] = search;
+        }
+        return search;
+    }
+
+    private CompiledSearch compile(int shape) {
+        JPQLTemplates templates = JPAProvider.getTemplates(em);
+        JPAQuery<MemberFormDto> query = new JPAQuery<>(em, templates)
+                .select(PROJECTION)
+                .from(member);
+        // team.name 조건이 있으면 팀이 없는 회원은 어차피 걸러지므로 inner join 으로 바꿔서
+        // db 가 team(name) 인덱스에서 시작해 member(team_id, age) 로 찾아갈 수 있게 한다.
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            query.join(member.team, team);
+        } else {
+            query.leftJoin(member.team, team);
+        }
+        QueryMetadata metadata = query
+                .where(predicates(shape))
+                .getMetadata();
+
+        JPQLSerializer content = new JPQLSerializer(templates, em);
+        content.serialize(metadata, false, null);
+
+        JPQLSerializer count = new JPQLSerializer(templates, em);
+        count.serialize(metadata, true, null);
+
+        // 상한이 있는 count 용 id 쿼리. member -> team 은 다대일이라 left join 은 행 수를 바꾸지 않으므로
+        // team.name 조건이 없으면 join 없이 member 인덱스만으로 끝낼 수 있다.
+        JPAQuery<Long> idQuery = new JPAQuery<>(em, templates)
+                .select(member.id)
+                .from(member);
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            idQuery.join(member.team, team);
+        }
+        JPQLSerializer ids = new JPQLSerializer(templates, em);
+        ids.serialize(idQuery.where(predicates(shape)).getMetadata(), false, null);
+
+        return new CompiledSearch(shape,
+                content.toString(), new ArrayList<>(content.getConstants()),
+                count.toString(), new ArrayList<>(count.getConstants()),
+                ids.toString(), new ArrayList<>(ids.getConstants()));
+    }
+
+    private Predicate[] predicates(int shape) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME)) {
+            predicates.add(member.username.eq(USERNAME));
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+            predicates.add(team.name.eq(TEAM_NAME));
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE)) {
+            predicates.add(member.age.goe(AGE_GOE));
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE)) {
+            predicates.add(member.age.loe(AGE_LOE));
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_STARTS_WITH)) {
+            predicates.add(member.username.like(USERNAME_STARTS_WITH, LIKE_ESCAPE));
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_CONTAINS)) {
+            predicates.add(member.username.like(USERNAME_CONTAINS, LIKE_ESCAPE));
+        }
+        if (MemberSearchShape.has(shape, MemberSearchShape.ID_IN)) {
+            predicates.add(Expressions.booleanOperation(Ops.IN, member.id, IDS));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    public static class CompiledSearch {
+        final int shape;
+        final String contentJpql;
+        final List<Object> contentConstants;
+        final String countJpql;
+        final List<Object> countConstants;
+        final String idJpql;
+        final List<Object> idConstants;
+
+        CompiledSearch(int shape, String contentJpql, List<Object> contentConstants,
+                       String countJpql, List<Object> countConstants,
+                       String idJpql, List<Object> idConstants) {
+            this.shape = shape;
+            this.contentJpql = contentJpql;
+            this.contentConstants = contentConstants;
+            this.countJpql = countJpql;
+            this.countConstants = countConstants;
+            this.idJpql = idJpql;
+            this.idConstants = idConstants;
+        }
+
+        public int getShape() {
+            return shape;
+        }
+
+        public String getContentJpql() {
+            return contentJpql;
+        }
+
+        public String getCountJpql() {
+            return countJpql;
+        }
+
+        public String getIdJpql() {
+            return idJpql;
+        }
+
+        // content 쿼리의 바인딩 파라미터 (Param 또는 상수), JPQL 에 나오는 순서대로
+        public List<Object> getContentParameters() {
+            return Collections.unmodifiableList(contentConstants);
+        }
+
+        static MemberFormDto toDto(Object[] row) {
+            return PROJECTION.newInstance(row);
+        }
+    }
+}
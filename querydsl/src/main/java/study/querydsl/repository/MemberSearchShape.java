@@ -0,0 +1,83 @@
+package study.querydsl.repository;
+
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 검색 조건 중 어떤 필드가 실제로 where 절에 들어가는지를 비트마스크로 나타낸다.
+ * 값이 달라도 shape 가 같으면 같은 JPQL 이 만들어진다.
+ */
+public final class MemberSearchShape {
+
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+    public static final int USERNAME_STARTS_WITH = 1 << 4;
+    public static final int USERNAME_CONTAINS = 1 << 5;
+    // 조건에서 바로 나오지 않고, username 트라이그램 인덱스가 usernameContains 의 후보 id 를 줄 때 붙는다.
+    public static final int ID_IN = 1 << 6;
+
+    // 가능한 shape 의 개수 (0 ~ COUNT - 1)
+    public static final int COUNT = 1 << 7;
+
+    private MemberSearchShape() {
+    }
+
+    public static int of(MemberSearchCondition condition) {
+        int shape = 0;
+        if (StringUtils.hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        if (StringUtils.hasText(condition.getUsernameStartsWith())) {
+            shape |= USERNAME_STARTS_WITH;
+        }
+        if (StringUtils.hasText(condition.getUsernameContains())) {
+            shape |= USERNAME_CONTAINS;
+        }
+        return shape;
+    }
+
+    public static boolean has(int shape, int field) {
+        return (shape & field) != 0;
+    }
+
+    // 예) "teamName+ageGoe", 조건이 하나도 없으면 "none"
+    public static String describe(int shape) {
+        List<String> fields = new ArrayList<>();
+        if (has(shape, USERNAME)) {
+            fields.add("username");
+        }
+        if (has(shape, TEAM_NAME)) {
+            fields.add("teamName");
+        }
+        if (has(shape, AGE_GOE)) {
+            fields.add("ageGoe");
+        }
+        if (has(shape, AGE_LOE)) {
+            fields.add("ageLoe");
+        }
+        if (has(shape, USERNAME_STARTS_WITH)) {
+            fields.add("usernameStartsWith");
+        }
+        if (has(shape, USERNAME_CONTAINS)) {
+            fields.add("usernameContains");
+        }
+        if (has(shape, ID_IN)) {
+            fields.add("idIn");
+        }
+        return fields.isEmpty() ? "none" : String.join("+", fields);
+    }
+}
@@ -0,0 +1,327 @@
+package study.querydsl.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * username 의 트라이그램 (연속된 세 글자) -> member id 목록 메모리 인덱스. member.username-index.enabled=true 일 때만 채워진다.
+ * <p>
+ * usernameContains 검색어의 트라이그램마다 id 목록을 가져와 가장 짧은 목록부터 교집합을 구하므로
+ * 비용은 테이블 크기가 아니라 목록 길이에 비례한다. 교집합은 후보일 뿐이라 db 쿼리에서 like 로 한 번 더 거른다.
+ * 저장 / 수정 / 삭제된 회원은 커밋 후 바로 반영하고, 벌크 update / delete 와 이전 값을 모르는 update 는
+ * username 이 어떻게 바뀌었는지 알 수 없으므로 db 에서 다시 읽는다. 다시 읽기가 끝나기 전에 들어온 요청은 한 번의 읽기로 합쳐진다.
+ * <p>
+ * 인덱스는 다 읽은 뒤 모든 변경을 반영하고 있을 때 (완전할 때) 만 후보를 준다. 읽는 중이거나 읽기에 실패했으면
+ * 후보를 주지 않아서 like 로 찾는다. native SQL, deleteAllInBatch, 다른 인스턴스의 쓰기는 이벤트가 오지 않아
+ * 완전한지 알 수 없으므로 기본값은 꺼져 있다. 모든 쓰기가 이 인스턴스의 엔티티 / 벌크 경로를 지나는 배포에서만 켠다.
+ */
+@Slf4j
+@Component
+public class MemberUsernameTrigramIndex implements DisposableBean {
+
+    private static final int GRAM = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final ExecutorService rebuildExecutor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    // null 이면 아직 만들어지지 않았거나 다시 읽는 중
+    private Map<Long, Postings> postings;
+    // 다시 읽는 동안 커밋된 변경, 읽기가 끝나면 순서대로 다시 적용한다. (적용은 멱등이라 이미 읽힌 변경이어도 된다)
+    private List<MemberChangedEvent> pending;
+    private long generation;
+    // 다시 읽기가 예약되었거나 진행 중이면 true, 그동안의 요청은 generation 만 올려서 진행 중인 읽기를 다시 하게 한다.
+    private boolean rebuildScheduled;
+
+    public MemberUsernameTrigramIndex(JdbcTemplate jdbcTemplate,
+                                      @Value("${member.username-index.enabled:false}") boolean enabled,
+                                      @Value("${member.username-index.max-candidates:1000}") int maxCandidates,
+                                      @Value("${member.username-index.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.enabled = enabled;
+        this.maxCandidates = maxCandidates;
+        this.rebuildExecutor = enabled ? Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-username-index");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * username 에 fragment 가 들어 있을 수 있는 회원 id, 오름차순.
+     * 인덱스가 완전하지 않거나, fragment 가 세 글자보다 짧거나, 후보가 maxCandidates 보다 많아 인덱스가 도움이 안 되면 null.
+     * 빈 배열은 완전한 인덱스가 맞는 회원이 없다고 답한 것이다.
+     */
+    public long[] candidates(String fragment) {
+        if (fragment == null || fragment.length() < GRAM) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (postings == null) {
+                return null;
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (long gram : grams(fragment)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return new long[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            Postings shortest = lists.get(0);
+            long[] result = Arrays.copyOf(shortest.ids, shortest.size);
+            int size = result.length;
+            for (int i = 1; i < lists.size() && size > 0; i++) {
+                size = retainAll(result, size, lists.get(i));
+            }
+            return size > maxCandidates ? null : Arrays.copyOf(result, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isBulk() || (event.getType() == MemberChangedEvent.Type.UPDATE && !event.isPreviousKnown())) {
+            requestRebuild();
+            return;
+        }
+        if (event.getMemberId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (postings != null) {
+                apply(postings, event);
+            } else if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Map<Long, Postings> target, MemberChangedEvent event) {
+        long id = event.getMemberId();
+        switch (event.getType()) {
+            case SAVE:
+                add(target, id, event.getUsername());
+                break;
+            case UPDATE:
+                if (!Objects.equals(event.getPreviousUsername(), event.getUsername())) {
+                    remove(target, id, event.getPreviousUsername());
+                    add(target, id, event.getUsername());
+                }
+                break;
+            case DELETE:
+                remove(target, id, event.getUsername());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void requestRebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            postings = null;
+            generation++;
+            if (rebuildScheduled) {
+                return;
+            }
+            rebuildScheduled = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuildExecutor.execute(this::rebuild);
+    }
+
+    /**
+     * db 에서 (id, username) 을 모두 다시 읽는다. 읽는 도중 다시 읽기 요청이 있었다면 결과를 버리고 다시 읽는다.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            try {
+                rebuildUntilStable();
+            } catch (RuntimeException e) {
+                // 다음 요청이 다시 읽기를 예약할 수 있게 한다. 그때까지 인덱스는 비어 있어 like 로 찾는다.
+                lock.writeLock().lock();
+                try {
+                    rebuildScheduled = false;
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void rebuildUntilStable() {
+        while (true) {
+            long startGeneration;
+            lock.writeLock().lock();
+            try {
+                startGeneration = generation;
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            long start = System.nanoTime();
+            Map<Long, Postings> loaded = new HashMap<>();
+            long[] rows = new long[1];
+            RowCallbackHandler collect = rs -> {
+                add(loaded, rs.getLong(1), rs.getString(2));
+                rows[0]++;
+            };
+            jdbcTemplate.query("select member_id, username from member order by member_id", collect);
+
+            lock.writeLock().lock();
+            try {
+                if (generation != startGeneration) {
+                    continue;
+                }
+                for (MemberChangedEvent event : pending) {
+                    apply(loaded, event);
+                }
+                postings = loaded;
+                pending = null;
+                rebuildScheduled = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("[username-index] indexed {} members, {} trigrams in {} ms",
+                    rows[0], loaded.size(), (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+        }
+    }
+
+    private static void add(Map<Long, Postings> target, long id, String username) {
+        if (username == null) {
+            return;
+        }
+        for (long gram : grams(username)) {
+            target.computeIfAbsent(gram, key -> new Postings()).add(id);
+        }
+    }
+
+    private static void remove(Map<Long, Postings> target, long id, String username) {
+        if (username == null) {
+            return;
+        }
+        for (long gram : grams(username)) {
+            Postings list = target.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                target.remove(gram);
+            }
+        }
+    }
+
+    // 중복을 뺀 트라이그램, 글자 세 개를 16 비트씩 long 하나에 담는다.
+    static long[] grams(String value) {
+        if (value.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[value.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    // result[0, size) 중 other 에도 있는 id 만 앞으로 모으고 남은 개수를 돌려준다.
+    private static int retainAll(long[] result, int size, Postings other) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (Arrays.binarySearch(other.ids, 0, other.size, result[i]) >= 0) {
+                result[kept++] = result[i];
+            }
+        }
+        return kept;
+    }
+
+    // 오름차순으로 정렬된 id 목록, 새 id 는 대부분 가장 크므로 뒤에 붙는다.
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            int at = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                at = -at - 1;
+            } else if (at < size) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        // 없던 id 면 false
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+}
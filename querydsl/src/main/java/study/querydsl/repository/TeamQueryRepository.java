@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.QTeamMemberDto;
+import study.querydsl.dto.QTeamMembersDto;
+import study.querydsl.dto.TeamMemberDto;
+import study.querydsl.dto.TeamMembersDto;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀과 소속 회원을 페이지 단위로 조회한다.
+ * team.members 를 fetch join 하면서 offset/limit 을 걸면 Hibernate 가 전체를 읽어서 메모리에서 페이징하므로 (HHH000104)
+ * 팀 페이지를 먼저 SQL 로 자르고, 그 페이지의 회원은 팀 id IN 쿼리 한 번으로 가져온다.
+ * 페이지 크기와 상관없이 쿼리는 최대 3 번 (팀, 회원, count) 나간다.
+ */
+@Repository
+public class TeamQueryRepository {
+
+    private final JPAQueryFactory queryFactory;
+
+    public TeamQueryRepository(EntityManager em) {
+        this.queryFactory = new JPAQueryFactory(em);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TeamMembersDto> searchTeamsWithMembers(String teamName, Pageable pageable) {
+        List<TeamMembersDto> teams = queryFactory
+                .select(new QTeamMembersDto(team.id, team.name))
+                .from(team)
+                .where(teamNameEq(teamName))
+                .orderBy(team.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        if (!teams.isEmpty()) {
+            List<Long> teamIds = teams.stream().map(TeamMembersDto::getTeamId).collect(Collectors.toList());
+            Map<Long, List<TeamMemberDto>> membersByTeam = queryFactory
+                    .select(new QTeamMemberDto(member.id, member.username, member.age, member.team.id))
+                    .from(member)
+                    .where(member.team.id.in(teamIds))
+                    .orderBy(member.team.id.asc(), member.id.asc())
+                    .fetch()
+                    .stream()
+                    .collect(Collectors.groupingBy(TeamMemberDto::getTeamId));
+            teams.forEach(t -> t.setMembers(membersByTeam.getOrDefault(t.getTeamId(), List.of())));
+        }
+
+        JPAQuery<Long> countQuery = queryFactory
+                .select(team.count())
+                .from(team)
+                .where(teamNameEq(teamName));
+        return PageableExecutionUtils.getPage(teams, pageable, countQuery::fetchOne);
+    }
+
+    private BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+}
@@ -0,0 +1,81 @@
+package study.querydsl.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량의 테스트 데이터를 넣는 로더.
+ * batchSize 건마다 트랜잭션을 새로 열어서 커밋하기 때문에 영속성 컨텍스트가 batchSize 이상으로 커지지 않고,
+ * insert 는 hibernate.jdbc.batch_size 단위의 JDBC 배치로 나간다.
+ */
+@Slf4j
+@Component
+public class MemberBulkLoader {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public MemberBulkLoader(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public long load(int teamCount, int memberCount, int batchSize) {
+        long start = System.nanoTime();
+        List<Long> teamIds = transactionTemplate.execute(status -> persistTeams(teamCount));
+
+        for (int from = 0; from < memberCount; from += batchSize) {
+            int to = Math.min(from + batchSize, memberCount);
+            int chunkFrom = from;
+            transactionTemplate.executeWithoutResult(status -> persistMembers(teamIds, chunkFrom, to));
+
+            if (to % (batchSize * 100) == 0 || to == memberCount) {
+                double seconds = Math.max((System.nanoTime() - start) / 1_000_000_000.0, 0.001);
+                log.info("seeded {}/{} members ({} rows/s)", to, memberCount, (long) (to / seconds));
+            }
+        }
+        return memberCount;
+    }
+
+    private List<Long> persistTeams(int teamCount) {
+        List<Long> teamIds = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team(teamName(i));
+            em.persist(team);
+            teamIds.add(team.getId());
+        }
+        return teamIds;
+    }
+
+    private void persistMembers(List<Long> teamIds, int from, int to) {
+        // 청크마다 팀을 다시 읽는다. team.members 는 초기화되지 않은 inverse 컬렉션이라 add 해도 로딩되지 않는다.
+        List<Team> teams = teamIds.isEmpty() ? List.of() : em
+                .createQuery("select t from Team t where t.id in :ids order by t.id", Team.class)
+                .setParameter("ids", teamIds)
+                .setHint(QueryHints.HINT_CACHEABLE, true) // 2차 캐시가 켜져 있으면 두 번째 청크부터는 db 에 가지 않는다.
+                .getResultList();
+
+        for (int i = from; i < to; i++) {
+            Team team = teams.isEmpty() ? null : teams.get(i % teams.size());
+            em.persist(new Member("member" + i, i % 100, team));
+        }
+    }
+
+    // teamA, teamB ... teamZ 다음부터는 team26, team27 ...
+    private String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
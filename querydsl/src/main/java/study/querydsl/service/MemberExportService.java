@@ -0,0 +1,99 @@
+package study.querydsl.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.InvalidSearchParameterException;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+
+    // 이 행 수마다 writer 를 flush 해서 클라이언트가 결과를 바로 받아볼 수 있게 한다.
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format from(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSearchParameterException("지원하지 않는 export 형식입니다: " + value);
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long export(MemberSearchCondition condition, Format format, Writer writer) throws IOException {
+        if (format == Format.CSV) {
+            writer.write("memberId,username,age,teamId,teamName\n");
+        }
+
+        long rows = 0;
+        try (Stream<MemberFormDto> stream = memberRepository.searchStream(condition)) {
+            Iterator<MemberFormDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                MemberFormDto dto = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsv(dto, writer);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                }
+                if (++rows % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void writeCsv(MemberFormDto dto, Writer writer) throws IOException {
+        writer.write(String.valueOf(dto.getMemberId()));
+        writer.write(',');
+        writer.write(csv(dto.getUsername()));
+        writer.write(',');
+        writer.write(String.valueOf(dto.getAge()));
+        writer.write(',');
+        writer.write(dto.getTeamId() != null ? String.valueOf(dto.getTeamId()) : "");
+        writer.write(',');
+        writer.write(csv(dto.getTeamName()));
+        writer.write('\n');
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
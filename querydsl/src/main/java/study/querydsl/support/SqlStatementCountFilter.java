@@ -0,0 +1,74 @@
+package study.querydsl.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 실행된 SQL 수를 세서 sql.statements.per.request{uri} 로 남기고,
+ * 한도를 넘거나 같은 select 가 반복되면 (N+1) 경고 로그를 남긴다.
+ */
+@Slf4j
+@Component
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final int maxRepeats;
+    private final boolean strict;
+
+    public SqlStatementCountFilter(MeterRegistry meterRegistry,
+                                   @Value("${member.sql-counter.max-statements:30}") int maxStatements,
+                                   @Value("${member.sql-counter.max-repeats:5}") int maxRepeats,
+                                   @Value("${member.sql-counter.strict:false}") boolean strict) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+        this.strict = strict;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start(maxStatements, maxRepeats, strict);
+        SqlStatementStats stats;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            stats = SqlStatementCounter.stop();
+        }
+
+        String uri = uri(request);
+        DistributionSummary.builder("sql.statements.per.request")
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getTotal());
+
+        if (stats.exceeds()) {
+            log.warn("[sql-counter] {} {} -> {}", request.getMethod(), uri, stats);
+        } else {
+            log.debug("[sql-counter] {} {} -> {}", request.getMethod(), uri, stats);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    // 태그가 무한히 늘어나지 않도록 실제 경로 대신 매핑된 패턴을 쓴다.
+    private String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,115 @@
+package study.querydsl.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hibernate 가 실행하는 SQL 을 스레드(요청, 테스트) 단위로 세는 StatementInspector.
+ * hibernate.session_factory.statement_inspector 로 등록되고, {@link #start} ~ {@link #stop} 사이의 SQL 만 센다.
+ * 같은 select 가 반복되면 N+1 로 보고, strict 모드에서는 한도를 넘는 순간 예외를 던진다.
+ * 요청이 다른 스레드에 맡긴 쿼리도 세려면 그 작업을 {@link #propagate} 로 감싼다. (memberSearchExecutor 의 TaskDecorator)
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.record(sql);
+        }
+        return sql;
+    }
+
+    public static void start(int maxStatements, int maxRepeats, boolean strict) {
+        CURRENT.set(new Scope(maxStatements, maxRepeats, strict));
+    }
+
+    public static SqlStatementStats stop() {
+        Scope scope = CURRENT.get();
+        CURRENT.remove();
+        return scope != null ? scope.toStats() : SqlStatementStats.EMPTY;
+    }
+
+    /**
+     * 지금 스레드에서 세고 있으면 task 가 다른 스레드에서 실행한 SQL 도 같은 곳에 센다.
+     * {@link org.springframework.core.task.TaskDecorator} 로 쓴다.
+     */
+    public static Runnable propagate(Runnable task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    // 작업 스레드와 나눠 쓰므로 기록과 읽기를 동기화한다.
+    private static class Scope {
+        private final int maxStatements;
+        private final int maxRepeats;
+        private final boolean strict;
+        private final Map<String, Integer> selects = new HashMap<>();
+        private int total;
+        private int maxRepeat;
+        private String mostRepeated;
+
+        Scope(int maxStatements, int maxRepeats, boolean strict) {
+            this.maxStatements = maxStatements;
+            this.maxRepeats = maxRepeats;
+            this.strict = strict;
+        }
+
+        synchronized void record(String sql) {
+            total++;
+            String statement = stripComment(sql);
+            // insert 가 여러 번 나가는 것은 정상이라 반복 검사는 select 만 한다.
+            if (statement.toLowerCase(Locale.ROOT).startsWith("select")) {
+                int count = selects.merge(statement, 1, Integer::sum);
+                if (count > maxRepeat) {
+                    maxRepeat = count;
+                    mostRepeated = statement;
+                }
+            }
+            if (strict) {
+                SqlStatementStats stats = toStats();
+                if (stats.exceeds()) {
+                    throw new IllegalStateException("SQL 한도를 넘었습니다: " + stats);
+                }
+            }
+        }
+
+        synchronized SqlStatementStats toStats() {
+            return new SqlStatementStats(total, maxRepeat, mostRepeated, maxStatements, maxRepeats);
+        }
+
+        // use_sql_comments 로 붙는 /* ... */ 를 떼어낸다.
+        private static String stripComment(String sql) {
+            String trimmed = sql.trim();
+            if (trimmed.startsWith("/*")) {
+                int end = trimmed.indexOf("*/");
+                if (end > 0) {
+                    return trimmed.substring(end + 2).trim();
+                }
+            }
+            return trimmed;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.support;
+
+import lombok.Getter;
+
+@Getter
+public class SqlStatementStats {
+
+    static final SqlStatementStats EMPTY = new SqlStatementStats(0, 0, null, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final int total;
+    private final int maxRepeat;
+    private final String mostRepeated;
+    private final int maxStatements;
+    private final int maxRepeats;
+
+    SqlStatementStats(int total, int maxRepeat, String mostRepeated, int maxStatements, int maxRepeats) {
+        this.total = total;
+        this.maxRepeat = maxRepeat;
+        this.mostRepeated = mostRepeated;
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+    }
+
+    public boolean exceedsTotal() {
+        return total > maxStatements;
+    }
+
+    // 같은 select 가 maxRepeats 번 이상 나가면 N+1 로 본다.
+    public boolean isSuspectedNPlusOne() {
+        return maxRepeat >= maxRepeats;
+    }
+
+    public boolean exceeds() {
+        return exceedsTotal() || isSuspectedNPlusOne();
+    }
+
+    @Override
+    public String toString() {
+        return "total=" + total + "/" + maxStatements
+                + ", maxRepeat=" + maxRepeat + "/" + maxRepeats
+                + (mostRepeated != null ? ", mostRepeated=" + mostRepeated : "");
+    }
+}
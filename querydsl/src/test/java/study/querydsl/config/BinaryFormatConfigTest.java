@@ -0,0 +1,82 @@
+package study.querydsl.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.SlimPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BinaryFormatConfigTest {
+
+    @Autowired
+    RequestMappingHandlerAdapter handlerAdapter;
+
+    @Test
+    public void binaryConvertersFollowJsonAndUseBootObjectMapper() {
+        List<HttpMessageConverter<?>> converters = handlerAdapter.getMessageConverters();
+
+        int json = indexOf(converters, MappingJackson2HttpMessageConverter.class);
+        int smile = indexOf(converters, MappingJackson2SmileHttpMessageConverter.class);
+        int cbor = indexOf(converters, MappingJackson2CborHttpMessageConverter.class);
+
+        assertThat(json).isNotNegative().isLessThan(smile);
+        assertThat(smile).isLessThan(cbor);
+        // spring.jackson 기본값 (날짜를 timestamp 로 쓰지 않음) 이 적용되어 있어야 한다.
+        assertThat(mapper(converters, smile).isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)).isFalse();
+        assertThat(mapper(converters, cbor).isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)).isFalse();
+    }
+
+    @Test
+    public void rowsViewInSmileIsSmallerThanPageJson() throws Exception {
+        List<HttpMessageConverter<?>> converters = handlerAdapter.getMessageConverters();
+        ObjectMapper jsonMapper = mapper(converters, indexOf(converters, MappingJackson2HttpMessageConverter.class));
+        ObjectMapper smileMapper = mapper(converters, indexOf(converters, MappingJackson2SmileHttpMessageConverter.class));
+
+        List<MemberFormDto> content = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            content.add(new MemberFormDto(i, "member" + i, (int) i, i % 2 == 0 ? 1L : null, i % 2 == 0 ? "teamA" : null));
+        }
+        PageImpl<MemberFormDto> page = new PageImpl<>(content, PageRequest.of(0, 100), 1000);
+
+        byte[] pageJson = jsonMapper.writeValueAsBytes(page);
+        byte[] rowsSmile = smileMapper.writeValueAsBytes(SlimPage.rows(page, MemberFormDto.COLUMNS, MemberFormDto::toRow));
+
+        JsonNode decoded = smileMapper.readTree(rowsSmile);
+        assertThat(decoded.get("columns").size()).isEqualTo(5);
+        assertThat(decoded.get("content").get(1).get(1).asText()).isEqualTo("member1");
+        assertThat(decoded.get("content").get(1).get(3).isNull()).isTrue();
+        assertThat(decoded.get("totalElements").asLong()).isEqualTo(1000);
+        assertThat(decoded.get("hasNext").asBoolean()).isTrue();
+        assertThat(rowsSmile.length).isLessThan(pageJson.length / 2);
+    }
+
+    private static int indexOf(List<HttpMessageConverter<?>> converters, Class<?> type) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i).getClass() == type) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ObjectMapper mapper(List<HttpMessageConverter<?>> converters, int index) {
+        return ((AbstractJackson2HttpMessageConverter) converters.get(index)).getObjectMapper();
+    }
+}
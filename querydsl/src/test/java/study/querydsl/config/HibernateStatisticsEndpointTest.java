@@ -0,0 +1,90 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.EndpointId;
+import org.springframework.boot.actuate.endpoint.ExposableEndpoint;
+import org.springframework.boot.actuate.endpoint.Operation;
+import org.springframework.boot.actuate.endpoint.OperationType;
+import org.springframework.boot.actuate.endpoint.jmx.JmxEndpointsSupplier;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointsSupplier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "member.hibernate-statistics.enabled=true",
+        "member.query-plan-cache.max-size=64",
+        "management.endpoints.web.exposure.include=hibernate",
+        "spring.jmx.enabled=true"
+})
+@Transactional
+class HibernateStatisticsEndpointTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    HibernateStatisticsEndpoint endpoint;
+
+    @Autowired
+    WebEndpointsSupplier webEndpoints;
+
+    @Autowired
+    JmxEndpointsSupplier jmxEndpoints;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void statistics() {
+        endpoint.reset();
+        em.persist(new Member("member1", 10));
+        em.persist(new Member("member2", 20));
+        em.flush();
+        em.clear();
+
+        memberJpaRepository.findAll();
+        memberJpaRepository.findAll();
+
+        Map<String, Object> statistics = endpoint.statistics();
+        Map<String, Object> planCache = (Map<String, Object>) statistics.get("queryPlanCache");
+        Map<String, Object> queries = (Map<String, Object>) statistics.get("queries");
+        Map<String, Object> entities = (Map<String, Object>) statistics.get("entities");
+        Map<String, Object> findAll = (Map<String, Object>) queries.get("select m from Member m");
+
+        assertThat(statistics.get("enabled")).isEqualTo(true);
+        assertThat(planCache.get("maxSize")).hasToString("64");
+        assertThat(findAll.get("executions")).isEqualTo(2L);
+        assertThat(findAll.get("rows")).isEqualTo(4L);
+        assertThat(entities.get("loads")).isEqualTo(2L);
+        assertThat((Map<String, Object>) entities.get("byEntity")).containsKey(Member.class.getName());
+
+        endpoint.reset();
+        Map<String, Object> afterReset = (Map<String, Object>) endpoint.statistics().get("queries");
+        assertThat(afterReset).isEmpty();
+    }
+
+    // 인증 없는 HTTP 로는 읽기만 되고, 통계를 지우는 reset 은 JMX 에만 있다.
+    @Test
+    public void resetOnlyOverJmx() {
+        assertThat(operationTypes(webEndpoints.getEndpoints())).containsExactly(OperationType.READ);
+        assertThat(operationTypes(jmxEndpoints.getEndpoints())).containsExactlyInAnyOrder(OperationType.READ, OperationType.DELETE);
+    }
+
+    private static OperationType[] operationTypes(Collection<? extends ExposableEndpoint<? extends Operation>> endpoints) {
+        return endpoints.stream()
+                .filter(endpoint -> endpoint.getEndpointId().equals(EndpointId.of("hibernate")))
+                .flatMap(endpoint -> endpoint.getOperations().stream())
+                .map(Operation::getType)
+                .toArray(OperationType[]::new);
+    }
+}
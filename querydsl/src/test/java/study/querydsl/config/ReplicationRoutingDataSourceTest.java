@@ -0,0 +1,65 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicationRoutingDataSourceTest {
+
+    ReplicationRoutingDataSource routing;
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    void before() {
+        routing = new ReplicationRoutingDataSource(node("routing_primary"), List.of(node("routing_replica")));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Test
+    public void routeByReadOnly() {
+        assertThat(databaseIn(readWrite)).isEqualToIgnoringCase("routing_primary");
+        assertThat(databaseIn(readOnly)).isEqualToIgnoringCase("routing_replica");
+        // 트랜잭션 밖은 primary
+        assertThat(database()).isEqualToIgnoringCase("routing_primary");
+    }
+
+    @Test
+    public void laggingReplicaFallsBackToPrimary() {
+        routing.checkReplicas("select 10", Duration.ofSeconds(5));
+        assertThat(routing.getHealthyReplicas()).isEmpty();
+        assertThat(databaseIn(readOnly)).isEqualToIgnoringCase("routing_primary");
+
+        routing.checkReplicas("select 1", Duration.ofSeconds(5));
+        assertThat(routing.getHealthyReplicas()).containsExactly("replica-0");
+        assertThat(databaseIn(readOnly)).isEqualToIgnoringCase("routing_replica");
+    }
+
+    private String databaseIn(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> database());
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select database()", String.class);
+    }
+
+    private DataSource node(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
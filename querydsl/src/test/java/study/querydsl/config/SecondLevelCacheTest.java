@@ -0,0 +1,85 @@
+package study.querydsl.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 2차 캐시는 커밋된 데이터만 담으므로 테스트 트랜잭션 대신 직접 커밋하고 끝나면 지운다.
+@SpringBootTest(properties = "member.second-level-cache.enabled=true")
+class SecondLevelCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        teamId = tx.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            em.persist(new Member("member1", 10, team));
+            em.persist(new Member("member2", 20, team));
+            return team.getId();
+        });
+        emf.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void teamAndMembersAreCached() {
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamId).getMembers()).hasSize(2));
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamId).getMembers()).hasSize(2));
+
+        assertThat(statistics.getDomainDataRegionStatistics("team").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("team-members").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void bulkUpdateEvictsTeamMembers() {
+        tx.executeWithoutResult(status -> em.find(Team.class, teamId).getMembers().size());
+        assertThat(emf.unwrap(SessionFactory.class).getCache()
+                .containsCollection(SecondLevelCacheConfig.TEAM_MEMBERS_ROLE, teamId)).isTrue();
+
+        tx.executeWithoutResult(status -> memberJpaRepository.bulkDeleteByAgeGt(15));
+
+        assertThat(emf.unwrap(SessionFactory.class).getCache()
+                .containsCollection(SecondLevelCacheConfig.TEAM_MEMBERS_ROLE, teamId)).isFalse();
+        tx.executeWithoutResult(status -> assertThat(em.find(Team.class, teamId).getMembers()).hasSize(1));
+    }
+}
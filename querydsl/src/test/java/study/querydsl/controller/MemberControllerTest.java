@@ -0,0 +1,170 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+import study.querydsl.dto.InvalidSearchParameterException;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.support.SqlStatementCounter;
+import study.querydsl.support.SqlStatementStats;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// ETag 는 커밋된 변경으로만 바뀌므로 테스트 트랜잭션 없이 실행하고 끝나면 지운다.
+@SpringBootTest
+class MemberControllerTest {
+
+    @Autowired
+    MemberController memberController;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    RequestMappingHandlerMapping handlerMapping;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> memberJpaRepository.save(new Member("member1", 10)));
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void unchangedDataAnswers304WithoutQuery() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        List<MemberFormDto> result = memberController.searchMemberV1(new MemberSearchCondition(), request(null, first));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        assertThat(result).hasSize(1);
+        assertThat(etag).startsWith("W/");
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        SqlStatementCounter.start(50, 5, false);
+        List<MemberFormDto> cached = memberController.searchMemberV1(new MemberSearchCondition(), request(etag, second));
+        SqlStatementStats stats = SqlStatementCounter.stop();
+
+        assertThat(cached).isNull();
+        assertThat(second.getStatus()).isEqualTo(304);
+        // 버전 행만 JDBC 로 읽고 회원 쿼리는 나가지 않는다.
+        assertThat(stats.getTotal()).isZero();
+    }
+
+    @Test
+    public void committedChangesChangeEtag() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        memberController.searchMemberV1(new MemberSearchCondition(), request(null, first));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        // 롤백된 저장은 버전을 올리지 않는다.
+        tx.executeWithoutResult(status -> {
+            memberJpaRepository.save(new Member("member2", 20));
+            status.setRollbackOnly();
+        });
+        MockHttpServletResponse afterRollback = new MockHttpServletResponse();
+        memberController.searchMemberV1(new MemberSearchCondition(), request(etag, afterRollback));
+        assertThat(afterRollback.getStatus()).isEqualTo(304);
+
+        tx.executeWithoutResult(status -> memberJpaRepository.bulkAddAge(1));
+        MockHttpServletResponse afterBulk = new MockHttpServletResponse();
+        List<MemberFormDto> result = memberController.searchMemberV1(new MemberSearchCondition(), request(etag, afterBulk));
+
+        assertThat(afterBulk.getStatus()).isEqualTo(200);
+        assertThat(afterBulk.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+        assertThat(result).extracting("age").containsExactly(11);
+    }
+
+    // 다른 인스턴스가 커밋한 변경도 db 의 버전을 올리므로 이 인스턴스의 ETag 가 바뀐다.
+    @Test
+    public void versionBumpedElsewhereChangesEtag() {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        memberController.searchMemberV1(new MemberSearchCondition(), request(null, first));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+
+        // 이벤트 없이 (다른 인스턴스처럼) db 만 바꾼다.
+        jdbcTemplate.update("update member set age = 99");
+        jdbcTemplate.update("update data_version set version = version + 1 where name = 'member'");
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        List<MemberFormDto> result = memberController.searchMemberV1(new MemberSearchCondition(), request(etag, second));
+
+        assertThat(second.getStatus()).isEqualTo(200);
+        assertThat(second.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+        // 검색 캐시에 남은 이전 버전의 결과를 쓰지 않는다.
+        assertThat(result).extracting("age").containsExactly(99);
+    }
+
+    @Test
+    public void estimatedCountCannotBeParallel() {
+        assertThrows(InvalidSearchParameterException.class, () -> memberController.searchMemberV3(
+                new MemberSearchCondition(), PageRequest.of(0, 2), true, "estimated", "page",
+                request(null, new MockHttpServletResponse())));
+    }
+
+    // view 마다 반환 타입이 정해진 핸들러로 간다. 기본 (page) 핸들러는 Page<MemberFormDto> 를 돌려준다.
+    @Test
+    public void viewSelectsHandler() throws Exception {
+        assertThat(handlerFor("/v3/members", null)).isEqualTo("searchMemberV3");
+        assertThat(handlerFor("/v3/members", "page")).isEqualTo("searchMemberV3");
+        assertThat(handlerFor("/v3/members", "slim")).isEqualTo("searchMemberV3Slim");
+        assertThat(handlerFor("/v3/members", "rows")).isEqualTo("searchMemberV3Rows");
+        assertThat(handlerFor("/v2/members", "rows")).isEqualTo("searchMemberV2Rows");
+
+        assertThrows(InvalidSearchParameterException.class, () -> memberController.searchMemberV2(
+                new MemberSearchCondition(), PageRequest.of(0, 2), "columns", request(null, new MockHttpServletResponse())));
+    }
+
+    private String handlerFor(String uri, String view) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (view != null) {
+            request.addParameter("view", view);
+        }
+        ServletRequestPathUtils.parseAndCache(request);
+        return ((HandlerMethod) handlerMapping.getHandler(request).getHandler()).getMethod().getName();
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v1/members");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
+}
@@ -0,0 +1,62 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdBatchesTest {
+
+    @Test
+    public void chunksAreNotPadded(){
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 11; id++) {
+            ids.add(id);
+        }
+
+        List<List<Long>> chunks = IdBatches.chunks(ids, 4);
+
+        // 채우기는 Hibernate 의 in_clause_parameter_padding 이 한다.
+        assertThat(chunks).containsExactly(
+                List.of(1L, 2L, 3L, 4L),
+                List.of(5L, 6L, 7L, 8L),
+                List.of(9L, 10L, 11L));
+    }
+
+    @Test
+    public void duplicatesAndNullsAreDropped(){
+        List<List<Long>> chunks = IdBatches.chunks(Arrays.asList(3L, null, 1L, 3L, 2L, 5L, 4L), 6);
+
+        // 6 은 4 로 내린다.
+        assertThat(chunks).containsExactly(List.of(3L, 1L, 2L, 5L), List.of(4L));
+        assertThat(IdBatches.chunks(List.of(), 4)).isEmpty();
+        assertThrows(IllegalArgumentException.class, () -> IdBatches.chunks(List.of(1L), 0));
+    }
+
+    // 1000 은 512 로 내리므로 Hibernate 가 2 의 거듭제곱으로 채워도 청크는 512 를 넘지 않는다.
+    @Test
+    public void chunksFitTheLimitAfterPadding(){
+        List<Long> ids = new ArrayList<>();
+        for (long id = 0; id < 2000; id++) {
+            ids.add(id);
+        }
+
+        List<List<Long>> chunks = IdBatches.chunks(ids, 1000);
+
+        assertThat(chunks).hasSize(4);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(512));
+        assertThat(chunks.stream().mapToInt(List::size).sum()).isEqualTo(2000);
+    }
+
+    @Test
+    public void inInputOrder(){
+        Map<Long, String> found = Map.of(1L, "a", 2L, "b", 3L, "c");
+
+        assertThat(IdBatches.inInputOrder(List.of(3L, 9L, 1L, 3L, 2L), found)).containsExactly("c", "a", "b");
+    }
+}
@@ -0,0 +1,170 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 인덱스는 커밋된 데이터를 읽으므로 테스트 트랜잭션 없이 실행하고 끝나면 지운다.
+@SpringBootTest
+class MemberAgeIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    MemberAgeIndex ageIndex;
+    List<Member> members;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        members = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 20; i++) {
+                Member member = new Member("member" + i, i % 10 * 10);
+                em.persist(member);
+                members.add(member);
+            }
+        });
+        // delta 가 4 건 차면 본 배열과 합친다.
+        ageIndex = new MemberAgeIndex(jdbcTemplate, true, 4, 100);
+    }
+
+    @AfterEach
+    public void after() {
+        ageIndex.destroy();
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void rangeCount() {
+        assertThat(ageIndex.count(null, null)).isEmpty();
+
+        ageIndex.rebuild();
+
+        assertThat(ageIndex.count(null, null)).hasValue(20);
+        assertThat(ageIndex.count(30, null)).hasValue(14);
+        assertThat(ageIndex.count(null, 25)).hasValue(6);
+        assertThat(ageIndex.count(20, 40)).hasValue(6);
+        assertThat(ageIndex.count(41, 49)).hasValue(0);
+        assertThat(ageIndex.count(50, 10)).hasValue(0);
+    }
+
+    @Test
+    public void savedMembersAreMergedInAgeOrder() {
+        ageIndex.rebuild();
+
+        List<Member> saved = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            for (int age : new int[]{25, 5, 95, 25, 25}) {
+                Member member = new Member("new", age);
+                em.persist(member);
+                saved.add(member);
+            }
+        });
+        saved.forEach(m -> ageIndex.onMemberChanged(MemberChangedEvent.saved(m)));
+
+        assertThat(ageIndex.count(null, null)).hasValue(25);
+        assertThat(ageIndex.count(25, 25)).hasValue(3);
+
+        assertThat(ageIndex.count(0, 0)).hasValue(2);
+        assertThat(ageIndex.count(5, 5)).hasValue(1);
+        assertThat(ageIndex.count(0, 10)).hasValue(5);
+    }
+
+    @Test
+    public void bulkChangeDropsIndexUntilRebuilt() {
+        ageIndex.rebuild();
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.age >= 50").executeUpdate());
+
+        ageIndex.onMemberChanged(MemberChangedEvent.bulkDeleted(10));
+        ageIndex.rebuild();
+
+        assertThat(ageIndex.count(null, null)).hasValue(10);
+    }
+
+    @Test
+    public void updatesAndDeletesMoveEntries() {
+        ageIndex.rebuild();
+        Member moved = members.get(0);
+        Member deleted = members.get(1);
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, moved.getId()).setAge(15);
+            em.remove(em.find(Member.class, deleted.getId()));
+        });
+        ageIndex.onMemberChanged(MemberChangedEvent.updated(em.find(Member.class, moved.getId()), "member0", 0));
+        ageIndex.onMemberChanged(MemberChangedEvent.deleted(deleted.getId(), "member1", 10));
+
+        assertThat(ageIndex.count(null, null)).hasValue(19);
+        assertThat(ageIndex.count(0, 0)).hasValue(1);
+        assertThat(ageIndex.count(10, 10)).hasValue(1);
+        assertThat(ageIndex.count(15, 15)).hasValue(1);
+        assertThat(ageIndex.count(20, 20)).hasValue(2);
+
+        // delta 와 removed 가 합쳐져도 결과는 같다.
+        Member saved = new Member("new", 5);
+        tx.executeWithoutResult(status -> em.persist(saved));
+        ageIndex.onMemberChanged(MemberChangedEvent.saved(saved));
+        ageIndex.onMemberChanged(MemberChangedEvent.deleted(members.get(2).getId(), "member2", 20));
+        assertThat(ageIndex.count(0, 5)).hasValue(2);
+        assertThat(ageIndex.count(10, 15)).hasValue(2);
+        assertThat(ageIndex.count(20, 20)).hasValue(1);
+        assertThat(ageIndex.count(null, null)).hasValue(19);
+    }
+
+    @Test
+    public void repeatedEventsAreIdempotent() {
+        ageIndex.rebuild();
+        Member existing = members.get(3);
+
+        // 이미 있는 회원을 다시 넣거나, 없는 회원을 지워도 건수는 그대로다.
+        ageIndex.onMemberChanged(MemberChangedEvent.saved(existing));
+        ageIndex.onMemberChanged(MemberChangedEvent.saved(existing));
+        ageIndex.onMemberChanged(MemberChangedEvent.deleted(-1L, "none", 30));
+        assertThat(ageIndex.count(30, 30)).hasValue(2);
+
+        ageIndex.onMemberChanged(MemberChangedEvent.deleted(existing.getId(), "member3", 30));
+        ageIndex.onMemberChanged(MemberChangedEvent.deleted(existing.getId(), "member3", 30));
+        assertThat(ageIndex.count(30, 30)).hasValue(1);
+
+        ageIndex.onMemberChanged(MemberChangedEvent.saved(existing));
+        assertThat(ageIndex.count(30, 30)).hasValue(2);
+    }
+
+    // 이전 나이를 모르면 본 배열의 어느 항목을 지울지 모르므로 db 에서 다시 읽는다.
+    @Test
+    public void updateWithoutPreviousRebuilds() throws InterruptedException {
+        ageIndex.rebuild();
+        Member moved = members.get(0);
+        tx.executeWithoutResult(status -> em.find(Member.class, moved.getId()).setAge(15));
+
+        moved.setAge(15);
+        ageIndex.onMemberChanged(MemberChangedEvent.updatedWithoutPrevious(moved));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!ageIndex.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(ageIndex.count(15, 15)).hasValue(1);
+        assertThat(ageIndex.count(0, 0)).hasValue(1);
+    }
+}
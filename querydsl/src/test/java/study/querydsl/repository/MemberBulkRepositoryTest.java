@@ -0,0 +1,133 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 구간마다 커밋하므로 테스트 트랜잭션 없이 실행하고 끝나면 지운다.
+@SpringBootTest
+@RecordApplicationEvents
+class MemberBulkRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    ApplicationEvents events;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < 25; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void updateInChunks() {
+        long count = memberBulkRepository.updateUsername("비회원", 10, 7);
+
+        assertThat(count).isEqualTo(10);
+        assertThat(countByUsername("비회원")).isEqualTo(10);
+    }
+
+    @Test
+    public void addAndDeleteInChunks() {
+        assertThat(memberBulkRepository.addAge(1, 4)).isEqualTo(25);
+        assertThat(memberBulkRepository.deleteByAgeGt(20, 4)).isEqualTo(5);
+        Long remaining = tx.execute(status -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+        assertThat(remaining).isEqualTo(20);
+    }
+
+    // OSIV 처럼 트랜잭션 없이 열려 있는 영속성 컨텍스트에서는 영향을 받은 회원만 detach 된다.
+    @Test
+    public void detachOnlyAffectedMembers() {
+        EntityManager requestEm = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(requestEm));
+        try {
+            List<Member> members = em.createQuery("select m from Member m order by m.age", Member.class).getResultList();
+            Member young = members.get(0);
+            Member old = members.get(members.size() - 1);
+
+            memberBulkRepository.updateUsername("비회원", 10, 7);
+
+            assertThat(requestEm.contains(young)).isFalse();
+            assertThat(requestEm.contains(old)).isTrue();
+            assertThat(requestEm.find(Member.class, young.getId()).getUsername()).isEqualTo("비회원");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            requestEm.close();
+        }
+    }
+
+    // @Repository 라서 IllegalStateException 이 스프링 예외로 변환된다.
+    @Test
+    public void rejectInsideWriteTransaction() {
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> tx.executeWithoutResult(status -> memberBulkRepository.addAge(1)));
+    }
+
+    @Test
+    public void rejectInsideReadOnlyTransaction() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> readOnly.executeWithoutResult(status -> memberBulkRepository.addAge(1)));
+    }
+
+    // id 가 듬성듬성해도 실제 대상 행만 구간으로 묶으므로 빈 구간의 트랜잭션과 이벤트가 생기지 않는다.
+    @Test
+    public void sparseIdsNeedNoEmptyChunks() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.age between 1 and 23").executeUpdate());
+        events.clear();
+
+        assertThat(memberBulkRepository.addAge(1, 2)).isEqualTo(2);
+        assertThat(events.stream(MemberChangedEvent.class)).hasSize(1);
+
+        // 바뀐 행이 없으면 이벤트도 없다.
+        events.clear();
+        assertThat(memberBulkRepository.updateUsername("비회원", 0, 2)).isZero();
+        assertThat(events.stream(MemberChangedEvent.class)).isEmpty();
+    }
+
+    private long countByUsername(String username) {
+        return tx.execute(status -> em.createQuery("select count(m) from Member m where m.username = :username", Long.class)
+                .setParameter("username", username)
+                .getSingleResult());
+    }
+}
@@ -0,0 +1,185 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 스냅샷은 커밋된 데이터를 읽으므로 테스트 트랜잭션 없이 실행하고 끝나면 지운다.
+@SpringBootTest
+class MemberColumnarSnapshotTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate tx;
+    MemberColumnarSnapshot snapshot;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 30; i++) {
+                Team team = i % 3 == 0 ? null : (i % 3 == 1 ? teamA : teamB);
+                em.persist(new Member("member" + (i % 7), i, team));
+            }
+        });
+        snapshot = new MemberColumnarSnapshot(jdbcTemplate, true, Duration.ofHours(1), Duration.ofHours(1), 100);
+    }
+
+    @AfterEach
+    public void after() {
+        snapshot.destroy();
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    // 스냅샷 집계가 db 집계와 같은지 조건 조합별로 확인한다.
+    @Test
+    public void statsMatchDatabase() {
+        snapshot.refresh();
+        MemberColumns columns = snapshot.current();
+
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{
+                condition(null, null, null, null),
+                condition("member3", null, null, null),
+                condition(null, "teamA", 5, null),
+                condition(null, null, 10, 20),
+                condition("member1", "teamB", null, 25),
+                condition("nobody", null, null, null)}) {
+            MemberStatsDto expected = tx.execute(status -> memberRepository.searchStats(condition));
+            MemberStatsDto actual = columns.stats(condition);
+            assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+            // 어느 쪽에서 답하든 팀 이름 순이다.
+            assertThat(actual.getCountByTeam()).containsExactlyEntriesOf(expected.getCountByTeam());
+        }
+    }
+
+    @Test
+    public void savedMembersAreMergedOnRefresh() {
+        snapshot.refresh();
+
+        Member saved = tx.execute(status -> {
+            Member member = new Member("newcomer", 99);
+            memberJpaRepository.save(member);
+            return member;
+        });
+        snapshot.onMemberChanged(MemberChangedEvent.saved(saved));
+        assertThat(snapshot.current().size()).isEqualTo(30);
+
+        snapshot.refresh();
+        MemberColumns columns = snapshot.current();
+        MemberStatsDto newcomer = columns.stats(condition("newcomer", null, null, null));
+        assertThat(columns.size()).isEqualTo(31);
+        assertThat(newcomer.getCount()).isEqualTo(1);
+        assertThat(newcomer.getMaxAge()).isEqualTo(99);
+        assertThat(newcomer.getNoTeamCount()).isEqualTo(1);
+
+        // 같은 id 를 다시 반영해도 행이 늘지 않는다.
+        snapshot.onMemberChanged(MemberChangedEvent.saved(saved));
+        snapshot.refresh();
+        assertThat(snapshot.current().size()).isEqualTo(31);
+    }
+
+    @Test
+    public void updatedAndDeletedMembersAreReplacedOnRefresh() {
+        snapshot.refresh();
+
+        Member renamed = tx.execute(status -> {
+            Member member = em.createQuery("select m from Member m where m.age = 1", Member.class).getSingleResult();
+            member.setUsername("renamed");
+            return member;
+        });
+        Member removed = tx.execute(status -> {
+            Member member = em.createQuery("select m from Member m where m.age = 2", Member.class).getSingleResult();
+            em.remove(member);
+            return member;
+        });
+        snapshot.onMemberChanged(MemberChangedEvent.updated(renamed, "member1", 1));
+        snapshot.onMemberChanged(MemberChangedEvent.deleted(removed.getId(), removed.getUsername(), 2));
+        snapshot.refresh();
+
+        MemberColumns columns = snapshot.current();
+        assertThat(columns.size()).isEqualTo(29);
+        assertThat(columns.stats(condition("renamed", null, null, null)).getCount()).isEqualTo(1);
+        assertThat(columns.stats(condition(null, null, 2, 2)).getCount()).isZero();
+    }
+
+    @Test
+    public void teamChangeReloads() {
+        snapshot.refresh();
+
+        tx.executeWithoutResult(status -> em.createQuery("select t from Team t where t.name = 'teamA'", Team.class)
+                .getSingleResult()
+                .setName("teamC"));
+        snapshot.onMemberChanged(MemberChangedEvent.teamChanged());
+        snapshot.refresh();
+
+        MemberColumns columns = snapshot.current();
+        assertThat(columns.stats(condition(null, "teamA", null, null)).getCount()).isZero();
+        assertThat(columns.stats(condition(null, "teamC", null, null)).getCount()).isEqualTo(10);
+        // 사전에는 teamC 가 먼저 있지만 결과는 팀 이름 순이다.
+        assertThat(columns.stats(condition(null, null, null, null)).getCountByTeam().keySet()).containsExactly("teamB", "teamC");
+    }
+
+    // 이벤트가 없는 변경도 max-age 가 지나면 전체를 다시 읽어서 반영된다.
+    @Test
+    public void maxAgeReloadsWithoutEvents() {
+        MemberColumnarSnapshot expiring = new MemberColumnarSnapshot(jdbcTemplate, true, Duration.ofHours(1), Duration.ZERO, 100);
+        try {
+            expiring.refresh();
+            jdbcTemplate.update("update member set username = null where age = 0");
+            expiring.refresh();
+
+            MemberColumns columns = expiring.current();
+            assertThat(columns.stats(condition(null, null, 0, 0)).getCount()).isEqualTo(1);
+            assertThat(columns.stats(condition("member0", null, null, null)).getCount()).isEqualTo(4);
+            // username 이 null 인 행은 문자열 조건에 맞지 않는다.
+            MemberSearchCondition contains = new MemberSearchCondition();
+            contains.setUsernameContains("member");
+            assertThat(columns.stats(contains).getCount()).isEqualTo(29);
+        } finally {
+            expiring.destroy();
+        }
+    }
+
+    private MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,97 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 버전은 커밋된 변경으로만 오르므로 테스트 트랜잭션 없이 실행하고 끝나면 지운다.
+@SpringBootTest
+class MemberDataVersionTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    // 한 트랜잭션이 회원을 바꾸고 커밋 전에 멈춰 있어도 다른 트랜잭션은 버전 행을 기다리지 않고 커밋한다.
+    @Test
+    public void concurrentWritersDoNotWaitOnVersionRow() throws Exception {
+        long before = version();
+        CountDownLatch flushed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("member1", 10));
+            em.flush();
+            flushed.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(flushed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("member2", 20));
+            em.flush();
+        });
+
+        // 첫 트랜잭션은 아직 열려 있고, 두 번째 트랜잭션의 버전만 올랐다.
+        assertThat(first).isNotDone();
+        assertThat(version()).isEqualTo(before + 1);
+
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        assertThat(version()).isEqualTo(before + 2);
+    }
+
+    @Test
+    public void rolledBackWriteDoesNotBump() {
+        long before = version();
+
+        tx.executeWithoutResult(status -> {
+            memberRepository.save(new Member("member1", 10));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(version()).isEqualTo(before);
+    }
+
+    private long version() {
+        return jdbcTemplate.queryForObject("select version from data_version where name = ?", Long.class, MemberDataVersion.NAME);
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@RecordApplicationEvents
+class MemberEntityChangeListenerTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ApplicationEvents events;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    public void everyEntityWritePathPublishes() {
+        Team team = new Team("teamA");
+        em.persist(team);
+        Member member = memberRepository.save(new Member("member1", 10, team));
+        em.flush();
+
+        // dirty checking
+        member.setUsername("renamed");
+        member.setAge(20);
+        em.flush();
+
+        team.setName("teamB");
+        em.flush();
+
+        memberRepository.delete(member);
+        em.flush();
+
+        List<MemberChangedEvent> published = events.stream(MemberChangedEvent.class).collect(Collectors.toList());
+        assertThat(published).extracting("type").containsExactly(
+                MemberChangedEvent.Type.SAVE,
+                MemberChangedEvent.Type.UPDATE,
+                MemberChangedEvent.Type.TEAM_CHANGE,
+                MemberChangedEvent.Type.DELETE);
+
+        MemberChangedEvent updated = published.get(1);
+        assertThat(updated.getMemberId()).isEqualTo(member.getId());
+        assertThat(updated.isPreviousKnown()).isTrue();
+        assertThat(updated.getPreviousUsername()).isEqualTo("member1");
+        assertThat(updated.getPreviousAge()).isEqualTo(10);
+        assertThat(updated.getUsername()).isEqualTo("renamed");
+        assertThat(updated.getAge()).isEqualTo(20);
+
+        MemberChangedEvent deleted = published.get(3);
+        assertThat(deleted.getMemberId()).isEqualTo(member.getId());
+        assertThat(deleted.getUsername()).isEqualTo("renamed");
+    }
+
+    @Test
+    public void saveWithoutFlushPublishesNothingYet() {
+        memberRepository.save(new Member("member1", 10));
+
+        assertThat(events.stream(MemberChangedEvent.class)).isEmpty();
+    }
+
+    // 행마다 이벤트가 나가도 검색 캐시는 트랜잭션마다 커밋 직전에 한 번, 커밋 후에 한 번만 비운다.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void oneTransactionInvalidatesSearchCacheOnce() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long before = searchCache.generation();
+        try {
+            tx.executeWithoutResult(status -> {
+                for (int i = 0; i < 100; i++) {
+                    memberRepository.save(new Member("member" + i, i));
+                }
+                em.flush();
+                assertThat(searchCache.generation()).isEqualTo(before);
+            });
+
+            assertThat(events.stream(MemberChangedEvent.class)).hasSize(100);
+            assertThat(searchCache.generation() - before).isEqualTo(2);
+        } finally {
+            tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+        }
+    }
+}
@@ -12,6 +12,7 @@ import study.querydsl.dto.MemberFormDto;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.support.SqlStatementLimit;
 
 import javax.persistence.EntityManager;
 
@@ -21,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @Transactional
+@SqlStatementLimit(max = 20, maxRepeats = 3)
 class MemberJpaRepositoryTest {
 
     @Autowired
@@ -48,6 +50,40 @@ class MemberJpaRepositoryTest {
         org.assertj.core.api.Assertions.assertThat(result2).containsExactly(member);
     }
 
+    @Test
+    public void findAllByIdsTest(){
+        Member member1 = new Member("member1", 10);
+        Member member2 = new Member("member2", 20);
+        Member member3 = new Member("member3", 30);
+        memberJpaRepository.save(member1);
+        memberJpaRepository.save(member2);
+        memberJpaRepository.save(member3);
+
+        List<Member> result = memberJpaRepository.findAllByIds(List.of(member3.getId(), member1.getId(), member2.getId()));
+        org.assertj.core.api.Assertions.assertThat(result).containsExactly(member3, member1, member2);
+    }
+
+    @Test
+    public void searchByBuilderTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+
+        List<MemberFormDto> result = memberJpaRepository.searchByBuilder(condition);
+        org.assertj.core.api.Assertions.assertThat(result).extracting("username").containsExactly("member4");
+    }
+
     @Test
     public void searchTest(){
         Team teamA = new Team("teamA");
@@ -0,0 +1,156 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.SqlStatementCounter;
+import study.querydsl.support.SqlStatementStats;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 작업 스레드는 테스트 트랜잭션의 데이터를 볼 수 없으므로 데이터를 커밋하고 끝나면 지운다.
+@SpringBootTest
+class MemberParallelPageQueryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberReadOnlyHints readOnlyHints;
+
+    @Autowired
+    MemberUsernameTrigramIndex usernameIndex;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    public void sameResultAsSequential() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<MemberFormDto> parallel = memberRepository.searchPageParallel(condition, PageRequest.of(1, 2));
+        Page<MemberFormDto> sequential = tx.execute(status -> memberRepository.searchPageComplex(condition, PageRequest.of(1, 2)));
+
+        assertThat(parallel.getTotalElements()).isEqualTo(5);
+        assertThat(parallel.getContent()).hasSize(2);
+        assertThat(parallel.getContent()).extracting("username")
+                .containsExactlyElementsOf(extractUsernames(sequential));
+    }
+
+    private List<Object> extractUsernames(Page<MemberFormDto> page) {
+        return page.getContent().stream().map(MemberFormDto::getUsername).collect(Collectors.toList());
+    }
+
+    // content / count 쿼리는 작업 스레드에서 돌지만 요청한 스레드의 SQL 수에 들어간다.
+    @Test
+    public void workerStatementsAreCounted() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        SqlStatementCounter.start(1, 5, false);
+        Page<MemberFormDto> page = memberRepository.searchPageParallel(condition, PageRequest.of(0, 2));
+        SqlStatementStats stats = SqlStatementCounter.stop();
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.exceeds()).isTrue();
+    }
+
+    @Test
+    public void emptyResult() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(1000);
+
+        Page<MemberFormDto> page = memberRepository.searchPageParallel(condition, PageRequest.of(0, 5));
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    public void rejectedSubmitCancelsStartedQuery() throws InterruptedException {
+        // 스레드 하나, 대기열 없음: content 쿼리가 스레드를 잡고 있으면 count 쿼리는 거절된다.
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+
+        CountDownLatch release = new CountDownLatch(1);
+        MemberSearchQueryRegistry blocking = new MemberSearchQueryRegistry(em, readOnlyHints, usernameIndex) {
+            @Override
+            public MemberSearchQuery create(MemberSearchCondition condition) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return super.create(condition);
+            }
+        };
+        MemberParallelPageQuery query = new MemberParallelPageQuery(em, blocking, executor, transactionManager, Duration.ofSeconds(3));
+
+        try {
+            assertThrows(RejectedExecutionException.class,
+                    () -> query.fetch(new MemberSearchCondition(), PageRequest.of(0, 2)));
+
+            // 취소되지 않았다면 content 쿼리가 release 를 기다리며 스레드를 계속 잡고 있다.
+            long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+            while (executor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(executor.getActiveCount()).isZero();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
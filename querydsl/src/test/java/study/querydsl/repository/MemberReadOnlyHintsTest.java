@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberReadOnlyHintsTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void before() {
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite.executeWithoutResult(status -> {
+            em.persist(new Member("member1", 10));
+            em.persist(new Member("member2", 20));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        readWrite.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void readOnlyTransactionLoadsReadOnlyEntities() {
+        readOnly.executeWithoutResult(status -> {
+            List<Member> members = memberJpaRepository.findAll_Querydls();
+            assertThat(members).hasSize(2);
+            assertThat(members).allMatch(m -> em.unwrap(Session.class).isReadOnly(m));
+
+            // 스냅샷이 없으므로 값을 바꿔도 반영되지 않는다.
+            members.get(0).setAge(99);
+        });
+        List<Member> reloaded = readWrite.execute(status -> memberJpaRepository.findByUsername_Querydsl("member1"));
+        assertThat(reloaded).extracting("age").containsExactly(10);
+    }
+
+    @Test
+    public void readWriteTransactionKeepsDirtyChecking() {
+        readWrite.executeWithoutResult(status -> {
+            List<Member> members = memberJpaRepository.findByUsername_Querydsl("member1");
+            assertThat(em.unwrap(Session.class).isReadOnly(members.get(0))).isFalse();
+            members.get(0).setAge(30);
+
+            // flush 되지 않은 변경도 auto flush 로 다음 조회에 보인다.
+            assertThat(memberJpaRepository.findAll("member1")).extracting("age").containsExactly(30);
+        });
+    }
+}
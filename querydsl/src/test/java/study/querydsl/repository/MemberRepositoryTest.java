@@ -3,11 +3,22 @@ package study.querydsl.repository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.InvalidSearchParameterException;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberKeysetPage;
+import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest
 @Transactional
@@ -25,4 +36,104 @@ class MemberRepositoryTest {
         memberRepository.save(member);
         
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchPageComplexTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberFormDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(first.getContent()).hasSize(3);
+        assertThat(first.getTotalElements()).isEqualTo(4);
+        assertThat(first.getTotalPages()).isEqualTo(2);
+
+        Page<MemberFormDto> last = memberRepository.searchPageComplex(condition, PageRequest.of(1, 3));
+        assertThat(last.getContent()).hasSize(1);
+        assertThat(last.getTotalElements()).isEqualTo(4);
+
+        condition.setAgeGoe(35);
+        Page<MemberFormDto> filtered = memberRepository.searchPageComplex(condition, PageRequest.of(0, 3));
+        assertThat(filtered.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    public void searchPageEstimatedTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        EstimatedPage<MemberFormDto> first = memberRepository.searchPageEstimated(condition, PageRequest.of(0, 2));
+        assertThat(first.getContent()).hasSize(2);
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        assertThat(first.isTotalApproximate()).isFalse();
+
+        // 마지막 페이지는 count 없이 total 을 안다.
+        EstimatedPage<MemberFormDto> last = memberRepository.searchPageEstimated(condition, PageRequest.of(2, 2));
+        assertThat(last.getContent()).hasSize(1);
+        assertThat(last.getTotalElements()).isEqualTo(5);
+        assertThat(last.isTotalApproximate()).isFalse();
+    }
+
+    @Test
+    public void searchByCursorTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 30, teamA));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 20, teamA));
+        em.persist(new Member("member5", 40, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberKeysetPage first = memberRepository.searchByCursor(condition, null, 2, MemberCursor.SortKey.AGE);
+        assertThat(first.getContent()).extracting("username").containsExactly("member2", "member3");
+        assertThat(first.isHasNext()).isTrue();
+
+        MemberKeysetPage second = memberRepository.searchByCursor(condition, MemberCursor.decode(first.getNextCursor()), 2, MemberCursor.SortKey.AGE);
+        assertThat(second.getContent()).extracting("username").containsExactly("member4", "member1");
+
+        MemberKeysetPage last = memberRepository.searchByCursor(condition, MemberCursor.decode(second.getNextCursor()), 2, MemberCursor.SortKey.AGE);
+        assertThat(last.getContent()).extracting("username").containsExactly("member5");
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+
+        assertThrows(InvalidSearchParameterException.class, () -> MemberCursor.decode("not-a-cursor"));
+    }
+
+    @Test
+    public void findAllByIdsTest(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member("member" + i, i * 10, i % 2 == 0 ? teamA : null);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+
+        List<Long> request = List.of(ids.get(3), ids.get(0), -1L, ids.get(4), ids.get(0));
+        List<MemberFormDto> result = memberRepository.findAllByIds(request);
+
+        // 입력 순서대로, 없는 id 와 중복은 빠진다.
+        assertThat(result).extracting("username").containsExactly("member3", "member0", "member4");
+        assertThat(result).extracting("teamName").containsExactly(null, "teamA", "teamA");
+        assertThat(memberRepository.findAllByIds(List.of())).isEmpty();
+    }
+}
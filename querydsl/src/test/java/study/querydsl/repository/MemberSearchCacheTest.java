@@ -0,0 +1,61 @@
+package study.querydsl.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSearchCacheTest {
+
+    MemberSearchCache cache = new MemberSearchCache(true, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Test
+    public void hitAndInvalidateTest(){
+        AtomicInteger loads = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+
+        cache.get(MemberSearchKey.of("search", condition), loads::incrementAndGet);
+        cache.get(MemberSearchKey.of("search", condition), loads::incrementAndGet);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+
+        cache.onMemberChanged(MemberChangedEvent.bulkUpdated(3));
+        cache.get(MemberSearchKey.of("search", condition), loads::incrementAndGet);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void loadStartedBeforeInvalidationIsNotKept(){
+        AtomicInteger loads = new AtomicInteger();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        // 조회 도중에 (트랜잭션 밖의) 변경으로 캐시가 비워진 경우
+        cache.get(MemberSearchKey.of("search", condition), () -> {
+            cache.onMemberChanged(MemberChangedEvent.bulkUpdated(1));
+            return loads.incrementAndGet();
+        });
+        Integer next = cache.get(MemberSearchKey.of("search", condition), loads::incrementAndGet);
+
+        assertThat(next).isEqualTo(2);
+    }
+
+    @Test
+    public void keyNormalizationTest(){
+        MemberSearchCondition blank = new MemberSearchCondition();
+        blank.setUsername("");
+        blank.setTeamName(" ");
+        MemberSearchCondition empty = new MemberSearchCondition();
+
+        assertThat(MemberSearchKey.of("search", blank)).isEqualTo(MemberSearchKey.of("search", empty));
+        assertThat(MemberSearchKey.of("searchPageSimple", empty, PageRequest.of(0, 10)))
+                .isNotEqualTo(MemberSearchKey.of("searchPageSimple", empty, PageRequest.of(1, 10)));
+    }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MemberSearchPlanReportTest {
+
+    @Autowired
+    MemberSearchPlanReport planReport;
+
+    @Test
+    public void explainAllShapes(){
+        List<MemberSearchPlanReport.ShapePlan> plans = planReport.explainAll();
+
+        assertThat(plans).hasSize(MemberSearchShape.COUNT);
+        // 조건이 없는 shape 와 트라이그램 인덱스 후보 없이 usernameContains 만 있는 shape 만 풀 스캔이어야 한다.
+        assertThat(plans).filteredOn(MemberSearchPlanReport.ShapePlan::isFullScan)
+                .extracting("shape")
+                .containsExactlyInAnyOrder("none", "usernameContains");
+    }
+}
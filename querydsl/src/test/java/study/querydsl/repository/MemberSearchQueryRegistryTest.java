@@ -0,0 +1,116 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.QMemberFormDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueryRegistryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberSearchQueryRegistry queryRegistry;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before(){
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + (i % 5), i * 5, i % 2 == 0 ? teamA : teamB));
+        }
+    }
+
+    // 미리 직렬화한 shape 들이 매번 querydsl 로 만든 쿼리와 같은 결과를 내는지 확인한다.
+    // ID_IN 은 조건에서 나오지 않으므로 따로 확인한다.
+    @Test
+    public void allShapesMatchQuerydsl(){
+        for (int shape = 0; shape < MemberSearchShape.COUNT; shape++) {
+            if (MemberSearchShape.has(shape, MemberSearchShape.ID_IN)) {
+                continue;
+            }
+            MemberSearchCondition condition = new MemberSearchCondition();
+            if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME)) {
+                condition.setUsername("member2");
+            }
+            if (MemberSearchShape.has(shape, MemberSearchShape.TEAM_NAME)) {
+                condition.setTeamName("teamA");
+            }
+            if (MemberSearchShape.has(shape, MemberSearchShape.AGE_GOE)) {
+                condition.setAgeGoe(20);
+            }
+            if (MemberSearchShape.has(shape, MemberSearchShape.AGE_LOE)) {
+                condition.setAgeLoe(70);
+            }
+            if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_STARTS_WITH)) {
+                condition.setUsernameStartsWith("member");
+            }
+            if (MemberSearchShape.has(shape, MemberSearchShape.USERNAME_CONTAINS)) {
+                condition.setUsernameContains("ber2");
+            }
+            assertThat(MemberSearchShape.of(condition)).isEqualTo(shape);
+
+            MemberSearchQuery query = queryRegistry.create(condition);
+            List<MemberFormDto> result = query.fetch();
+            List<MemberFormDto> expected = querydsl(condition);
+
+            assertThat(result).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(query.fetchCount()).isEqualTo(expected.size());
+            assertThat(query.hasMoreThan(expected.size())).isFalse();
+            assertThat(query.hasMoreThan(Math.max(expected.size() - 1, 0))).isEqualTo(!expected.isEmpty());
+        }
+    }
+
+    @Test
+    public void likeWildcardsAreEscaped(){
+        em.persist(new Member("100%_sale", 10));
+        em.persist(new Member("100xxsale", 10));
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("%_");
+        MemberSearchCondition prefix = new MemberSearchCondition();
+        prefix.setUsernameStartsWith("100%");
+
+        assertThat(queryRegistry.create(contains).fetch()).extracting("username").containsExactly("100%_sale");
+        assertThat(queryRegistry.create(prefix).fetch()).extracting("username").containsExactly("100%_sale");
+    }
+
+    private List<MemberFormDto> querydsl(MemberSearchCondition condition){
+        return queryFactory
+                .select(new QMemberFormDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        condition.getUsername() != null ? member.username.eq(condition.getUsername()) : null,
+                        condition.getUsernameStartsWith() != null ? member.username.startsWith(condition.getUsernameStartsWith()) : null,
+                        condition.getUsernameContains() != null ? member.username.contains(condition.getUsernameContains()) : null,
+                        condition.getTeamName() != null ? team.name.eq(condition.getTeamName()) : null,
+                        condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                        condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null
+                )
+                .fetch();
+    }
+}
@@ -0,0 +1,184 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberFormDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 인덱스는 커밋된 데이터를 읽으므로 테스트 트랜잭션 없이 실행하고 끝나면 지운다.
+@SpringBootTest
+class MemberUsernameTrigramIndexTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MemberReadOnlyHints readOnlyHints;
+
+    TransactionTemplate tx;
+    MemberUsernameTrigramIndex usernameIndex;
+    List<Member> members;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        members = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            for (String username : new String[]{"alice", "malice", "alicia", "bob", "bobby", "robert"}) {
+                Member member = new Member(username, 10);
+                em.persist(member);
+                members.add(member);
+            }
+        });
+        // 후보가 3 건을 넘으면 인덱스를 쓰지 않는다.
+        usernameIndex = new MemberUsernameTrigramIndex(jdbcTemplate, true, 3, 100);
+    }
+
+    @AfterEach
+    public void after() {
+        usernameIndex.destroy();
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+    }
+
+    @Test
+    public void candidates() {
+        assertThat(usernameIndex.candidates("lic")).isNull();
+
+        usernameIndex.rebuild();
+
+        assertThat(usernameIndex.candidates("lic")).containsExactly(ids(0, 1, 2));
+        assertThat(usernameIndex.candidates("alice")).containsExactly(ids(0, 1));
+        assertThat(usernameIndex.candidates("bert")).containsExactly(ids(5));
+        assertThat(usernameIndex.candidates("zzz")).isEmpty();
+        // 세 글자보다 짧으면 트라이그램이 없다.
+        assertThat(usernameIndex.candidates("bo")).isNull();
+    }
+
+    @Test
+    public void tooManyCandidatesFallsBackToScan() {
+        tx.executeWithoutResult(status -> em.persist(new Member("licorice", 10)));
+        usernameIndex.rebuild();
+
+        assertThat(usernameIndex.candidates("lic")).isNull();
+    }
+
+    @Test
+    public void savedMembersAreIndexed() {
+        usernameIndex.rebuild();
+
+        Member saved = tx.execute(status -> {
+            Member member = new Member("roberta", 10);
+            em.persist(member);
+            return member;
+        });
+        usernameIndex.onMemberChanged(MemberChangedEvent.saved(saved));
+
+        assertThat(usernameIndex.candidates("bert")).containsExactly(members.get(5).getId(), saved.getId());
+    }
+
+    @Test
+    public void bulkChangeDropsIndexUntilRebuilt() {
+        usernameIndex.rebuild();
+        tx.executeWithoutResult(status -> em.createQuery("update Member m set m.username = 'carol' where m.username = 'bob'").executeUpdate());
+
+        usernameIndex.onMemberChanged(MemberChangedEvent.bulkUpdated(1));
+        usernameIndex.rebuild();
+
+        assertThat(usernameIndex.candidates("car")).containsExactly(ids(3));
+    }
+
+    @Test
+    public void renamesAndDeletesAreIndexed() {
+        usernameIndex.rebuild();
+        Member renamed = members.get(3);
+        Member deleted = members.get(1);
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, renamed.getId()).setUsername("carol");
+            em.remove(em.find(Member.class, deleted.getId()));
+        });
+        renamed.setUsername("carol");
+        usernameIndex.onMemberChanged(MemberChangedEvent.updated(renamed, "bob", 10));
+        usernameIndex.onMemberChanged(MemberChangedEvent.deleted(deleted.getId(), "malice", 10));
+
+        assertThat(usernameIndex.candidates("car")).containsExactly(ids(3));
+        assertThat(usernameIndex.candidates("bob")).containsExactly(ids(4));
+        assertThat(usernameIndex.candidates("lic")).containsExactly(ids(0, 2));
+        assertThat(usernameIndex.candidates("mal")).isEmpty();
+    }
+
+    // 이전 username 을 모르면 어떤 트라이그램을 지울지 모르므로, 다시 읽을 때까지 후보를 주지 않고 like 로 찾게 한다.
+    @Test
+    public void updateWithoutPreviousFallsBackUntilRebuilt() throws InterruptedException {
+        usernameIndex.rebuild();
+        Member renamed = members.get(3);
+        tx.executeWithoutResult(status -> em.find(Member.class, renamed.getId()).setUsername("carol"));
+        renamed.setUsername("carol");
+
+        usernameIndex.onMemberChanged(MemberChangedEvent.updatedWithoutPrevious(renamed));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        long[] candidates = usernameIndex.candidates("car");
+        while (candidates == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            candidates = usernameIndex.candidates("car");
+        }
+        assertThat(candidates).containsExactly(ids(3));
+        assertThat(usernameIndex.candidates("bob")).containsExactly(ids(4));
+    }
+
+    // 후보 id 는 like 로 한 번 더 거르므로, 트라이그램이 모두 있어도 이어져 있지 않은 username 은 빠진다.
+    @Test
+    public void searchUsesCandidatesAndRechecksWithLike() {
+        usernameIndex.rebuild();
+        MemberSearchQueryRegistry registry = new MemberSearchQueryRegistry(em, readOnlyHints, usernameIndex);
+
+        List<MemberFormDto> result = search(registry, "alic");
+        List<MemberFormDto> none = search(registry, "xyz");
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("alice", "malice", "alicia");
+        assertThat(none).isEmpty();
+    }
+
+    private List<MemberFormDto> search(MemberSearchQueryRegistry registry, String fragment) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains(fragment);
+        tx.setReadOnly(true);
+        try {
+            return tx.execute(status -> {
+                MemberSearchQuery query = registry.create(condition);
+                assertThat(query.fetchCount()).isEqualTo(query.fetch().size());
+                return query.fetch();
+            });
+        } finally {
+            tx.setReadOnly(false);
+        }
+    }
+
+    private long[] ids(int... indexes) {
+        long[] ids = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            ids[i] = members.get(indexes[i]).getId();
+        }
+        return ids;
+    }
+}
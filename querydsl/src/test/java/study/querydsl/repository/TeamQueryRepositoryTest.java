@@ -0,0 +1,56 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamMembersDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.SqlStatementCounter;
+import study.querydsl.support.SqlStatementStats;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class TeamQueryRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TeamQueryRepository teamQueryRepository;
+
+    @Test
+    public void pageTeamsThenLoadMembers(){
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < i; j++) {
+                em.persist(new Member("member" + i + "-" + j, j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+
+        SqlStatementCounter.start(50, 3, false);
+        Page<TeamMembersDto> page = teamQueryRepository.searchTeamsWithMembers(null, PageRequest.of(1, 2));
+        SqlStatementStats stats = SqlStatementCounter.stop();
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting("teamName").containsExactly("team2", "team3");
+        assertThat(page.getContent().get(0).getMembers()).extracting("username").containsExactly("member2-0", "member2-1");
+        assertThat(page.getContent().get(1).getMembers()).hasSize(3);
+        // 팀 페이지, 회원 IN 쿼리, count
+        assertThat(stats.getTotal()).isEqualTo(3);
+
+        Page<TeamMembersDto> empty = teamQueryRepository.searchTeamsWithMembers("team0", PageRequest.of(0, 2));
+        assertThat(empty.getContent()).hasSize(1);
+        assertThat(empty.getContent().get(0).getMembers()).isEmpty();
+    }
+}
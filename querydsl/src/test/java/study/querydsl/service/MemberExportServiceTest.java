@@ -0,0 +1,50 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberExportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberExportService memberExportService;
+
+    @Test
+    public void exportTest() throws Exception {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member,2", 20, teamA));
+        em.persist(new Member("member3", 30));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        StringWriter csv = new StringWriter();
+        long rows = memberExportService.export(condition, MemberExportService.Format.CSV, csv);
+
+        assertThat(rows).isEqualTo(3);
+        assertThat(csv.toString().split("\n")).hasSize(4);
+        assertThat(csv.toString()).contains("\"member,2\",20,");
+
+        StringWriter ndjson = new StringWriter();
+        condition.setAgeGoe(20);
+        memberExportService.export(condition, MemberExportService.Format.NDJSON, ndjson);
+
+        assertThat(ndjson.toString().split("\n")).hasSize(2);
+        assertThat(ndjson.toString()).contains("\"username\":\"member3\"");
+    }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class SqlStatementCounterTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void detectNPlusOne(){
+        for (int i = 0; i < 4; i++) {
+            Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i, i, team));
+        }
+        em.flush();
+        em.clear();
+
+        SqlStatementCounter.start(50, 3, false);
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+        for (Member member : members) {
+            // LAZY 인 team 을 회원마다 따로 읽어온다.
+            member.getTeam().getName();
+        }
+        SqlStatementStats stats = SqlStatementCounter.stop();
+
+        assertThat(stats.getTotal()).isEqualTo(5);
+        assertThat(stats.getMaxRepeat()).isEqualTo(4);
+        assertThat(stats.isSuspectedNPlusOne()).isTrue();
+    }
+}
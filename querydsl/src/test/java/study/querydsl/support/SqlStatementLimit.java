@@ -0,0 +1,21 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 하나가 실행하는 SQL 수를 제한한다. 한도를 넘거나 같은 select 가 maxRepeats 번 반복되면 (N+1) 테스트가 실패한다.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(SqlStatementLimitExtension.class)
+public @interface SqlStatementLimit {
+
+    int max() default 50;
+
+    int maxRepeats() default 3;
+}
@@ -0,0 +1,26 @@
+package study.querydsl.support;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlStatementLimitExtension implements BeforeEachCallback, AfterEachCallback {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        SqlStatementLimit limit = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), SqlStatementLimit.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), SqlStatementLimit.class))
+                .orElseThrow();
+        SqlStatementCounter.start(limit.max(), limit.maxRepeats(), true);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        SqlStatementStats stats = SqlStatementCounter.stop();
+        // strict 모드에서 던진 예외를 테스트 코드가 삼켰더라도 여기서 다시 잡는다.
+        assertThat(stats.exceeds()).as("SQL 한도 초과: %s", stats).isFalse();
+    }
+}